@@ -0,0 +1,190 @@
+package com.aliyun.datahub.clientlibrary;
+
+import com.aliyun.datahub.client.DatahubClient;
+import com.aliyun.datahub.client.common.DatahubConfig;
+import com.aliyun.datahub.client.http.HttpConfig;
+import com.aliyun.datahub.client.model.*;
+import com.aliyun.datahub.clientlibrary.common.ClientFactory;
+import com.aliyun.datahub.clientlibrary.common.FakeClientInstaller;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * In-memory DatahubClient answering the calls made by the client library without network. The topic is
+ * a tuple topic of f1 STRING, f2 BIGINT whose shards are all active and never run out of records,
+ * writes and offset commits are accepted and dropped
+ */
+public class FakeDatahubClient implements InvocationHandler {
+    public static final String PROJECT = "bench_project";
+    public static final String TOPIC = "bench_topic";
+    public static final String SUB_ID = "bench_sub";
+    public static final int MAX_FETCH_SIZE = 1000;
+
+    private final int shardCount;
+    private final RecordSchema schema = genSchema();
+    private final List<RecordEntry> records = genRecords(schema, MAX_FETCH_SIZE);
+
+    private FakeDatahubClient(int shardCount) {
+        this.shardCount = shardCount;
+    }
+
+    public static DatahubClient create(int shardCount) {
+        return (DatahubClient) Proxy.newProxyInstance(DatahubClient.class.getClassLoader(),
+                new Class<?>[]{DatahubClient.class}, new FakeDatahubClient(shardCount));
+    }
+
+    public static ClientFactory factory(final int shardCount) {
+        return new ClientFactory() {
+            @Override
+            public DatahubClient create(DatahubConfig datahubConfig, HttpConfig httpConfig) {
+                return FakeDatahubClient.create(shardCount);
+            }
+        };
+    }
+
+    /**
+     * Client managers created afterwards use fake clients, until uninstall
+     * @return The endpoint to configure, client managers are shared by endpoint so each shard count has its own
+     */
+    public static String install(int shardCount) {
+        FakeClientInstaller.install(factory(shardCount));
+        return endpoint(shardCount);
+    }
+
+    public static void uninstall() {
+        FakeClientInstaller.uninstall();
+    }
+
+    public static String endpoint(int shardCount) {
+        return "http://bench-" + shardCount + ".datahub.local";
+    }
+
+    public static List<String> shardIds(int shardCount) {
+        List<String> shardIds = new ArrayList<>();
+        for (int i = 0; i < shardCount; ++i) {
+            shardIds.add(String.valueOf(i));
+        }
+        return shardIds;
+    }
+
+    public static RecordSchema genSchema() {
+        RecordSchema schema = new RecordSchema();
+        schema.addField(new Field("f1", FieldType.STRING));
+        schema.addField(new Field("f2", FieldType.BIGINT));
+        return schema;
+    }
+
+    public static List<RecordEntry> genRecords(RecordSchema schema, int count) {
+        List<RecordEntry> records = new ArrayList<>();
+        for (int i = 0; i < count; ++i) {
+            TupleRecordData data = new TupleRecordData(schema);
+            data.setField("f1", "1465999335123456");
+            data.setField("f2", (long) i);
+            RecordEntry record = new RecordEntry();
+            record.setRecordData(data);
+            records.add(record);
+        }
+        return records;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object invoke(Object proxy, Method method, Object[] args) {
+        switch (method.getName()) {
+            case "listShard":
+                return listShard();
+            case "getTopic":
+                return getTopic();
+            case "getCursor":
+                GetCursorResult cursorResult = new GetCursorResult();
+                cursorResult.setCursor("0");
+                return cursorResult;
+            case "getRecords":
+                return getRecords((Integer) args[args.length - 1]);
+            case "putRecordsByShard":
+                return new PutRecordsByShardResult();
+            case "openSubscriptionSession":
+                return openSubscriptionSession((List<String>) args[3]);
+            case "commitSubscriptionOffset":
+                return new CommitSubscriptionOffsetResult();
+            case "setUserAgent":
+            case "setEndpoint":
+                return null;
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            case "toString":
+                return "FakeDatahubClient, ShardCount: " + shardCount;
+            default:
+                throw new UnsupportedOperationException("Not supported by fake client: " + method.getName());
+        }
+    }
+
+    private ListShardResult listShard() {
+        List<ShardEntry> shards = new ArrayList<>();
+        BigInteger range = BigInteger.ONE.shiftLeft(128).divide(BigInteger.valueOf(shardCount));
+        for (int i = 0; i < shardCount; ++i) {
+            ShardEntry shard = new ShardEntry();
+            shard.setShardId(String.valueOf(i));
+            shard.setState(ShardState.ACTIVE);
+            shard.setBeginHashKey(hashKey(range.multiply(BigInteger.valueOf(i))));
+            shard.setEndHashKey(hashKey(range.multiply(BigInteger.valueOf(i + 1)).subtract(BigInteger.ONE)));
+            // each shard has its own address so that per shard clients are used
+            shard.setAddress("http://shard-" + i + ".datahub.local");
+            shards.add(shard);
+        }
+        ListShardResult result = new ListShardResult();
+        result.setShards(shards);
+        return result;
+    }
+
+    private static String hashKey(BigInteger value) {
+        String hex = value.toString(16).toUpperCase();
+        StringBuilder sb = new StringBuilder();
+        for (int i = hex.length(); i < 32; ++i) {
+            sb.append('0');
+        }
+        return sb.append(hex).toString();
+    }
+
+    private GetTopicResult getTopic() {
+        GetTopicResult result = new GetTopicResult();
+        result.setProjectName(PROJECT);
+        result.setTopicName(TOPIC);
+        result.setRecordType(RecordType.TUPLE);
+        result.setRecordSchema(schema);
+        result.setShardCount(shardCount);
+        return result;
+    }
+
+    private GetRecordsResult getRecords(int limit) {
+        // records are shared by responses, the library does not modify records read
+        List<RecordEntry> fetched = records.subList(0, Math.min(limit, records.size()));
+        GetRecordsResult result = new GetRecordsResult();
+        result.setRecords(fetched);
+        result.setRecordCount(fetched.size());
+        result.setNextCursor("0");
+        return result;
+    }
+
+    private OpenSubscriptionSessionResult openSubscriptionSession(List<String> shardIds) {
+        Map<String, SubscriptionOffset> offsets = new HashMap<>();
+        for (String shardId : shardIds) {
+            SubscriptionOffset offset = new SubscriptionOffset();
+            offset.setSequence(0);
+            offset.setTimestamp(0);
+            offsets.put(shardId, offset);
+        }
+        OpenSubscriptionSessionResult result = new OpenSubscriptionSessionResult();
+        result.setOffsets(offsets);
+        return result;
+    }
+}
@@ -0,0 +1,66 @@
+package com.aliyun.datahub.clientlibrary.common;
+
+import com.aliyun.datahub.client.DatahubClient;
+import com.aliyun.datahub.client.http.HttpConfig;
+import com.aliyun.datahub.clientlibrary.FakeDatahubClient;
+import com.aliyun.datahub.clientlibrary.config.ProducerConfig;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Looking up the client of a shard, done for every request
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ClientManagerBenchmark {
+    @Param({"1", "16", "256"})
+    public int shardCount;
+
+    @Param({"false", "true"})
+    public boolean compress;
+
+    private ClientManager clientManager;
+    private String[] shardIds;
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+        String endpoint = FakeDatahubClient.install(shardCount);
+        ProducerConfig config = new ProducerConfig(endpoint, "ak", "sk");
+        if (compress) {
+            config.setCompressType(HttpConfig.CompressType.LZ4);
+        }
+        clientManager = ClientManagerFactory.getClientManager(FakeDatahubClient.PROJECT, FakeDatahubClient.TOPIC,
+                config.getDatahubConfig(), config.getHttpConfig());
+        List<String> shards = FakeDatahubClient.shardIds(shardCount);
+        shardIds = shards.toArray(new String[shards.size()]);
+    }
+
+    @TearDown
+    public void tearDown() {
+        clientManager.close();
+        FakeDatahubClient.uninstall();
+    }
+
+    @Benchmark
+    public DatahubClient getClient() {
+        return clientManager.getClient(nextShardId());
+    }
+
+    @Benchmark
+    public DatahubClient getPlainClient() {
+        return clientManager.getClient(nextShardId(), false);
+    }
+
+    private String nextShardId() {
+        String shardId = shardIds[next];
+        next = next + 1 == shardIds.length ? 0 : next + 1;
+        return shardId;
+    }
+}
@@ -0,0 +1,15 @@
+package com.aliyun.datahub.clientlibrary.common;
+
+/**
+ * Sets the package private client factory of ClientManagerFactory, the benchmarks share the package
+ * so the library exposes no global hook
+ */
+public class FakeClientInstaller {
+    public static void install(ClientFactory factory) {
+        ClientManagerFactory.setClientFactory(factory);
+    }
+
+    public static void uninstall() {
+        ClientManagerFactory.setClientFactory(null);
+    }
+}
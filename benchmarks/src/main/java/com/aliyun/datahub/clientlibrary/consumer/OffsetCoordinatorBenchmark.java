@@ -0,0 +1,61 @@
+package com.aliyun.datahub.clientlibrary.consumer;
+
+import com.aliyun.datahub.clientlibrary.FakeDatahubClient;
+import com.aliyun.datahub.clientlibrary.config.ConsumerConfig;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Offset updates done by the consumer for every record read, commits go to the fake client
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OffsetCoordinatorBenchmark {
+    @Param({"1", "16", "256"})
+    public int shardCount;
+
+    private OffsetCoordinator offsetCoordinator;
+    private String[] shardIds;
+    private int next = 0;
+    private long sequence = 0;
+
+    @Setup
+    public void setup() {
+        String endpoint = FakeDatahubClient.install(shardCount);
+        ConsumerConfig config = new ConsumerConfig(endpoint, "ak", "sk");
+        offsetCoordinator = new OffsetCoordinator(FakeDatahubClient.PROJECT, FakeDatahubClient.TOPIC,
+                FakeDatahubClient.SUB_ID, config);
+        List<String> shards = FakeDatahubClient.shardIds(shardCount);
+        offsetCoordinator.openAndGetOffsets(shards);
+        shardIds = shards.toArray(new String[shards.size()]);
+    }
+
+    @TearDown
+    public void tearDown() {
+        offsetCoordinator.close();
+        FakeDatahubClient.uninstall();
+    }
+
+    @Benchmark
+    public void setOffset() {
+        offsetCoordinator.setOffset(nextShardId(), ++sequence, sequence);
+    }
+
+    @Benchmark
+    public void setOffsetAndCommit() {
+        offsetCoordinator.setOffset(nextShardId(), ++sequence, sequence);
+        offsetCoordinator.commitIfNeeded();
+    }
+
+    private String nextShardId() {
+        String shardId = shardIds[next];
+        next = next + 1 == shardIds.length ? 0 : next + 1;
+        return shardId;
+    }
+}
@@ -0,0 +1,64 @@
+package com.aliyun.datahub.clientlibrary.consumer;
+
+import com.aliyun.datahub.client.model.RecordEntry;
+import com.aliyun.datahub.clientlibrary.FakeDatahubClient;
+import com.aliyun.datahub.clientlibrary.config.ConsumerConfig;
+import com.aliyun.datahub.clientlibrary.config.ReadPolicy;
+import com.aliyun.datahub.clientlibrary.models.Offset;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Picking a shard reader and reading from it, shards are fetched from the fake client by the fetch
+ * threads meanwhile
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShardGroupReaderBenchmark {
+    @Param({"1", "16", "256"})
+    public int shardCount;
+
+    @Param({"OLDEST_FIRST", "LAG_PROPORTIONAL", "FAIR"})
+    public ReadPolicy readPolicy;
+
+    private ShardGroupReader shardGroupReader;
+
+    @Setup
+    public void setup() {
+        String endpoint = FakeDatahubClient.install(shardCount);
+        ConsumerConfig config = new ConsumerConfig(endpoint, "ak", "sk");
+        config.setReadPolicy(readPolicy);
+        shardGroupReader = new ShardGroupReader(FakeDatahubClient.PROJECT, FakeDatahubClient.TOPIC, config);
+
+        Map<String, Offset> offsetMap = new HashMap<>();
+        for (String shardId : FakeDatahubClient.shardIds(shardCount)) {
+            offsetMap.put(shardId, new Offset(0, 0));
+        }
+        shardGroupReader.createShardReader(offsetMap);
+    }
+
+    @TearDown
+    public void tearDown() {
+        shardGroupReader.close();
+        FakeDatahubClient.uninstall();
+    }
+
+    @Benchmark
+    public RecordEntry read() {
+        return shardGroupReader.read();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1000)
+    public List<RecordEntry> readBatch() {
+        return shardGroupReader.readBatch(1000);
+    }
+}
@@ -0,0 +1,122 @@
+package com.aliyun.datahub.clientlibrary.consumer;
+
+import com.aliyun.datahub.client.model.RecordEntry;
+import com.aliyun.datahub.clientlibrary.FakeDatahubClient;
+import com.aliyun.datahub.clientlibrary.config.ConsumerConfig;
+import com.aliyun.datahub.clientlibrary.models.Offset;
+import com.aliyun.datahub.clientlibrary.models.TopicInfo;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Records through the fetched queue of one shard. read runs a shard reader fetching from the fake client,
+ * the queue groups hand responses from one thread to another, against a linked queue with a separate
+ * counter as a baseline
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShardReaderBenchmark {
+    private static final int RESPONSE_SIZE = 100;
+    private static final int READ_SIZE = 1000;
+
+    @State(Scope.Thread)
+    public static class ReaderState {
+        private ExecutorService executor;
+        private ShardReader shardReader;
+        private final List<RecordEntry> out = new ArrayList<>();
+
+        @Setup
+        public void setup() {
+            String endpoint = FakeDatahubClient.install(1);
+            ConsumerConfig config = new ConsumerConfig(endpoint, "ak", "sk");
+            TopicInfo topicInfo = new TopicInfo(FakeDatahubClient.PROJECT, FakeDatahubClient.TOPIC,
+                    FakeDatahubClient.genSchema());
+            executor = Executors.newSingleThreadExecutor();
+            shardReader = new ShardReader(topicInfo, "0", new Offset(0, 0), config, executor);
+        }
+
+        @TearDown
+        public void tearDown() {
+            shardReader.close();
+            executor.shutdownNow();
+            FakeDatahubClient.uninstall();
+        }
+    }
+
+    @State(Scope.Group)
+    public static class RingState {
+        private final SpscRingBuffer<RecordEntry> queue = new SpscRingBuffer<>(4096);
+        private final List<RecordEntry> response =
+                FakeDatahubClient.genRecords(FakeDatahubClient.genSchema(), RESPONSE_SIZE);
+    }
+
+    @State(Scope.Group)
+    public static class LinkedQueueState {
+        private final ConcurrentLinkedQueue<RecordEntry> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger queueSize = new AtomicInteger(0);
+        private final List<RecordEntry> response =
+                FakeDatahubClient.genRecords(FakeDatahubClient.genSchema(), RESPONSE_SIZE);
+    }
+
+    @State(Scope.Thread)
+    public static class ConsumerOut {
+        private final List<RecordEntry> out = new ArrayList<>();
+    }
+
+    @Benchmark
+    public int read(ReaderState state) {
+        state.out.clear();
+        return state.shardReader.read(READ_SIZE, state.out);
+    }
+
+    @Benchmark
+    @Group("ring")
+    @GroupThreads(1)
+    public int ringOffer(RingState state) {
+        return state.queue.offer(state.response, 0);
+    }
+
+    @Benchmark
+    @Group("ring")
+    @GroupThreads(1)
+    public int ringDrain(RingState state, ConsumerOut out) {
+        out.out.clear();
+        return state.queue.drainTo(out.out, READ_SIZE);
+    }
+
+    @Benchmark
+    @Group("linkedQueue")
+    @GroupThreads(1)
+    public int linkedQueueOffer(LinkedQueueState state) {
+        // bounded like the ring to keep the queue from growing without limit
+        if (state.queueSize.get() >= 4096 - RESPONSE_SIZE) {
+            return 0;
+        }
+        state.queueSize.addAndGet(state.response.size());
+        state.queue.addAll(state.response);
+        return state.response.size();
+    }
+
+    @Benchmark
+    @Group("linkedQueue")
+    @GroupThreads(1)
+    public int linkedQueueDrain(LinkedQueueState state, ConsumerOut out) {
+        out.out.clear();
+        RecordEntry record;
+        while (out.out.size() < READ_SIZE && (record = state.queue.poll()) != null) {
+            out.out.add(record);
+        }
+        state.queueSize.addAndGet(-out.out.size());
+        return out.out.size();
+    }
+}
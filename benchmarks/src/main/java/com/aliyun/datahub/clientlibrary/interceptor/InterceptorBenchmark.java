@@ -0,0 +1,111 @@
+package com.aliyun.datahub.clientlibrary.interceptor;
+
+import com.aliyun.datahub.client.model.RecordEntry;
+import com.aliyun.datahub.clientlibrary.FakeDatahubClient;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Interceptors run on every request written and every response fetched, chained as users compose them
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InterceptorBenchmark {
+    private static final int BATCH_SIZE = 1000;
+
+    @Param({"0", "1", "4"})
+    public int depth;
+
+    private RecordInterceptor interceptor;
+    private List<RecordEntry> records;
+
+    @Setup
+    public void setup() {
+        if (depth == 0) {
+            interceptor = EmptyInterceptor.emptyInterceptor;
+        } else {
+            List<RecordInterceptor> interceptors = new ArrayList<>();
+            for (int i = 0; i < depth; ++i) {
+                interceptors.add(new AttributeInterceptor("key" + i));
+            }
+            interceptor = new ChainInterceptor(interceptors);
+        }
+        records = FakeDatahubClient.genRecords(FakeDatahubClient.genSchema(), BATCH_SIZE);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<RecordEntry> beforeWrite() {
+        return interceptor.beforeWrite(records);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<RecordEntry> afterRead() {
+        return interceptor.afterRead(records);
+    }
+
+    /**
+     * Apply interceptors in order for write and in reverse order for read
+     */
+    static class ChainInterceptor implements RecordInterceptor {
+        private final List<RecordInterceptor> interceptors;
+
+        ChainInterceptor(List<RecordInterceptor> interceptors) {
+            this.interceptors = interceptors;
+        }
+
+        @Override
+        public List<RecordEntry> beforeWrite(List<RecordEntry> records) {
+            for (RecordInterceptor interceptor : interceptors) {
+                records = interceptor.beforeWrite(records);
+            }
+            return records;
+        }
+
+        @Override
+        public List<RecordEntry> afterRead(List<RecordEntry> records) {
+            for (int i = interceptors.size() - 1; i >= 0; --i) {
+                records = interceptors.get(i).afterRead(records);
+            }
+            return records;
+        }
+    }
+
+    /**
+     * Tag records written and drop records read whose tag is marked dropped, a typical per record interceptor
+     */
+    static class AttributeInterceptor implements RecordInterceptor {
+        private final String key;
+
+        AttributeInterceptor(String key) {
+            this.key = key;
+        }
+
+        @Override
+        public List<RecordEntry> beforeWrite(List<RecordEntry> records) {
+            for (RecordEntry record : records) {
+                record.addAttribute(key, "value");
+            }
+            return records;
+        }
+
+        @Override
+        public List<RecordEntry> afterRead(List<RecordEntry> records) {
+            List<RecordEntry> result = new ArrayList<>(records.size());
+            for (RecordEntry record : records) {
+                if (record.getAttributes() == null || !"dropped".equals(record.getAttributes().get(key))) {
+                    result.add(record);
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.aliyun.datahub.clientlibrary.producer;
+
+import com.aliyun.datahub.client.model.RecordEntry;
+import com.aliyun.datahub.client.model.RecordSchema;
+import com.aliyun.datahub.client.model.TupleRecordData;
+import com.aliyun.datahub.clientlibrary.FakeDatahubClient;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records got from the pool against fresh ones, run with -prof gc to compare allocation per record
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RecordPoolBenchmark {
+    private final RecordSchema schema = FakeDatahubClient.genSchema();
+    private final RecordEntryPool pool = new RecordEntryPool(schema, 16384);
+    private long value = 0;
+
+    @Benchmark
+    public RecordEntry fresh() {
+        RecordEntry record = new RecordEntry();
+        record.setRecordData(new TupleRecordData(schema));
+        fill(record);
+        return record;
+    }
+
+    @Benchmark
+    public RecordEntry pooled() {
+        RecordEntry record = pool.acquire();
+        fill(record);
+        // done by the batch once written
+        ((RecordEntryPool.PooledRecordEntry) record).release();
+        return record;
+    }
+
+    private void fill(RecordEntry record) {
+        TupleRecordData data = (TupleRecordData) record.getRecordData();
+        data.setField(0, "1465999335123456");
+        data.setField(1, ++value);
+        record.addAttribute("key", "value");
+    }
+}
@@ -0,0 +1,63 @@
+package com.aliyun.datahub.clientlibrary.producer;
+
+import com.aliyun.datahub.client.model.RecordEntry;
+import com.aliyun.datahub.clientlibrary.FakeDatahubClient;
+import com.aliyun.datahub.clientlibrary.config.ProducerConfig;
+import com.aliyun.datahub.clientlibrary.config.ShardPickStrategy;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Picking shard writers and packing requests, the fake client accepts writes at once
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShardGroupWriterBenchmark {
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"1", "16", "256"})
+    public int shardCount;
+
+    @Param({"ROUND_ROBIN", "LEAST_LOADED"})
+    public ShardPickStrategy shardPickStrategy;
+
+    private ShardGroupWriter shardGroupWriter;
+    private List<RecordEntry> records;
+
+    @Setup
+    public void setup() {
+        String endpoint = FakeDatahubClient.install(shardCount);
+        ProducerConfig config = new ProducerConfig(endpoint, "ak", "sk");
+        config.setShardPickStrategy(shardPickStrategy);
+        shardGroupWriter = new ShardGroupWriter(FakeDatahubClient.PROJECT, FakeDatahubClient.TOPIC, config);
+        shardGroupWriter.createShardWriter(FakeDatahubClient.shardIds(shardCount));
+        records = FakeDatahubClient.genRecords(FakeDatahubClient.genSchema(), BATCH_SIZE);
+    }
+
+    @TearDown
+    public void tearDown() {
+        shardGroupWriter.close();
+        FakeDatahubClient.uninstall();
+    }
+
+    @Benchmark
+    @Threads(4)
+    @OperationsPerInvocation(BATCH_SIZE)
+    public void write() {
+        // written records are removed from the list
+        shardGroupWriter.write(new ArrayList<>(records));
+    }
+
+    @Benchmark
+    @Threads(4)
+    public WriteFuture writeAsync() {
+        return shardGroupWriter.writeAsync(records.get(0), null);
+    }
+}
@@ -0,0 +1,44 @@
+package com.aliyun.datahub.clientlibrary.common;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Exponential backoff with full jitter, so that clients failed together do not retry together
+ */
+public class Backoff {
+    private final long baseMs;
+    private final long maxMs;
+
+    public Backoff(long baseMs, long maxMs) {
+        this.baseMs = Math.max(baseMs, 0);
+        this.maxMs = Math.max(maxMs, this.baseMs);
+    }
+
+    /**
+     * @param attempt The retry times before, starts from 0.
+     * @return Random delay between 0 and min(max, base * 2 ^ attempt)
+     */
+    public long delayMs(int attempt) {
+        long bound = baseMs;
+        for (int i = 0; i < attempt && bound < maxMs; ++i) {
+            bound <<= 1;
+        }
+        bound = Math.min(bound, maxMs);
+        return bound <= 0 ? 0 : ThreadLocalRandom.current().nextLong(bound + 1);
+    }
+
+    /**
+     * Sleep before retry, keep the interrupt status and return early if interrupted
+     */
+    public void sleep(int attempt) {
+        long delay = delayMs(attempt);
+        if (delay <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.aliyun.datahub.clientlibrary.common;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Reuse byte buffers of power of two capacities, up to a limit of bytes pooled. Thread safe
+ */
+public class BufferPool {
+    private static final int MIN_CAPACITY = 4096;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private final boolean direct;
+    private final long maxPooledBytes;
+    private final AtomicLong pooledBytes = new AtomicLong(0);
+    private final ConcurrentMap<Integer, ConcurrentLinkedQueue<ByteBuffer>> pools = new ConcurrentHashMap<>();
+
+    /**
+     * @param direct Whether to allocate direct buffers.
+     * @param maxPooledBytes The max bytes of buffers kept for reuse.
+     */
+    public BufferPool(boolean direct, long maxPooledBytes) {
+        this.direct = direct;
+        this.maxPooledBytes = maxPooledBytes;
+    }
+
+    /**
+     * @param size The min capacity.
+     * @return A cleared buffer, limit at its capacity
+     */
+    public ByteBuffer acquire(int size) {
+        int capacity = capacityOf(size);
+        ConcurrentLinkedQueue<ByteBuffer> pool = pools.get(capacity);
+        ByteBuffer buffer = pool == null ? null : pool.poll();
+        if (buffer != null) {
+            pooledBytes.addAndGet(-capacity);
+            buffer.clear();
+            return buffer;
+        }
+        return direct ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    /**
+     * Give back a buffer acquired, not to be used afterwards
+     */
+    public void release(ByteBuffer buffer) {
+        int capacity = buffer.capacity();
+        if (capacity != capacityOf(capacity)) {
+            // not acquired from pool
+            return;
+        }
+        if (pooledBytes.addAndGet(capacity) > maxPooledBytes) {
+            pooledBytes.addAndGet(-capacity);
+            return;
+        }
+
+        ConcurrentLinkedQueue<ByteBuffer> pool = pools.get(capacity);
+        if (pool == null) {
+            ConcurrentLinkedQueue<ByteBuffer> newPool = new ConcurrentLinkedQueue<>();
+            pool = pools.putIfAbsent(capacity, newPool);
+            if (pool == null) {
+                pool = newPool;
+            }
+        }
+        pool.offer(buffer);
+    }
+
+    /**
+     * Drop idle buffers until at most the given bytes are pooled, for callers counting pooled buffers in a budget
+     * @param maxBytes The max bytes to keep pooled.
+     */
+    public void trim(long maxBytes) {
+        for (ConcurrentLinkedQueue<ByteBuffer> pool : pools.values()) {
+            ByteBuffer buffer;
+            while (pooledBytes.get() > maxBytes && (buffer = pool.poll()) != null) {
+                pooledBytes.addAndGet(-buffer.capacity());
+            }
+            if (pooledBytes.get() <= maxBytes) {
+                return;
+            }
+        }
+    }
+
+    public long getPooledBytes() {
+        return pooledBytes.get();
+    }
+
+    private static int capacityOf(int size) {
+        if (size <= MIN_CAPACITY) {
+            return MIN_CAPACITY;
+        }
+        if (size > MAX_CAPACITY / 2) {
+            return size;
+        }
+        int capacity = Integer.highestOneBit(size);
+        return capacity == size ? capacity : capacity << 1;
+    }
+}
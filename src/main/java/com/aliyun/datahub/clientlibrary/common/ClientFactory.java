@@ -0,0 +1,20 @@
+package com.aliyun.datahub.clientlibrary.common;
+
+import com.aliyun.datahub.client.DatahubClient;
+import com.aliyun.datahub.client.DatahubClientBuilder;
+import com.aliyun.datahub.client.common.DatahubConfig;
+import com.aliyun.datahub.client.http.HttpConfig;
+
+/**
+ * Create the clients held by client managers, replaced by in-memory clients in benchmarks
+ */
+public interface ClientFactory {
+    ClientFactory DEFAULT = new ClientFactory() {
+        @Override
+        public DatahubClient create(DatahubConfig datahubConfig, HttpConfig httpConfig) {
+            return DatahubClientBuilder.newBuilder().setDatahubConfig(datahubConfig).setHttpConfig(httpConfig).build();
+        }
+    };
+
+    DatahubClient create(DatahubConfig datahubConfig, HttpConfig httpConfig);
+}
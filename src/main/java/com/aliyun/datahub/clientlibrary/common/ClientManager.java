@@ -1,8 +1,8 @@
 package com.aliyun.datahub.clientlibrary.common;
 
 import com.aliyun.datahub.client.DatahubClient;
-import com.aliyun.datahub.client.DatahubClientBuilder;
 import com.aliyun.datahub.client.common.DatahubConfig;
+import com.aliyun.datahub.client.http.HttpConfig;
 
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -12,29 +12,81 @@ public class ClientManager {
     private String projectName;
     private String topicName;
     private String key;
-    private DatahubClientBuilder builder;
+    private ClientFactory clientFactory;
+    private HttpConfig httpConfig;
     private DatahubClient defaultClient;
     private ShardManager shardManager;
+    // clients without compression for small requests, null if compression is disabled
+    private HttpConfig plainHttpConfig;
+    private DatahubClient plainDefaultClient;
 
     private final AtomicInteger refCount = new AtomicInteger(0);
     private final ConcurrentHashMap<String, DatahubClient> clientMap = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, DatahubClient> plainClientMap = new ConcurrentHashMap<>();
 
     public ClientManager(String projectName, String topicName, DatahubConfig config) {
+        this(projectName, topicName, config, new HttpConfig());
+    }
+
+    public ClientManager(String projectName, String topicName, DatahubConfig config, HttpConfig httpConfig) {
+        this(projectName, topicName, config, httpConfig, ClientFactory.DEFAULT);
+    }
+
+    public ClientManager(String projectName, String topicName, DatahubConfig config, HttpConfig httpConfig,
+                         ClientFactory clientFactory) {
         this.projectName = projectName;
         this.topicName = topicName;
-        this.key = genKey(config.getEndpoint(), projectName, topicName);
+        this.key = genKey(config.getEndpoint(), projectName, topicName, httpConfig.getCompressType());
         this.config = config;
+        this.clientFactory = clientFactory;
 
-        this.builder = DatahubClientBuilder.newBuilder().setDatahubConfig(config);
-        this.defaultClient = builder.build();
+        this.httpConfig = httpConfig;
+        this.defaultClient = clientFactory.create(config, httpConfig);
+        if (httpConfig.getCompressType() != null) {
+            this.plainHttpConfig = copyWithoutCompress(httpConfig);
+            this.plainDefaultClient = clientFactory.create(config, plainHttpConfig);
+        }
         this.shardManager = new ShardManager(projectName, topicName, defaultClient);
     }
 
+    /**
+     * Same settings as the given config but compression, copied through the public setters
+     */
+    static HttpConfig copyWithoutCompress(HttpConfig httpConfig) {
+        return new HttpConfig()
+                .setReadTimeout(httpConfig.getReadTimeout())
+                .setConnTimeout(httpConfig.getConnTimeout())
+                .setMaxRetryCount(httpConfig.getMaxRetryCount())
+                .setDebugRequest(httpConfig.isDebugRequest())
+                .setProxyUri(httpConfig.getProxyUri())
+                .setProxyUsername(httpConfig.getProxyUsername())
+                .setProxyPassword(httpConfig.getProxyPassword());
+    }
+
     public DatahubClient getClient() {
         return defaultClient;
     }
 
     public DatahubClient getClient(String shardId) {
+        return getClient(shardId, defaultClient, clientMap, httpConfig);
+    }
+
+    /**
+     * @param compress Use the client with compression, ignored if compression is disabled.
+     */
+    public DatahubClient getClient(String shardId, boolean compress) {
+        if (compress || plainHttpConfig == null) {
+            return getClient(shardId);
+        }
+        return getClient(shardId, plainDefaultClient, plainClientMap, plainHttpConfig);
+    }
+
+    public boolean isCompressEnabled() {
+        return plainHttpConfig != null;
+    }
+
+    private DatahubClient getClient(String shardId, DatahubClient defaultClient,
+                                    ConcurrentHashMap<String, DatahubClient> clientMap, HttpConfig httpConfig) {
         String address = shardManager.getShardMeta().getAddressMap().get(shardId);
 
         if (address == null || address.isEmpty()) {
@@ -44,7 +96,7 @@ public class ClientManager {
         if (!clientMap.containsKey(shardId)) {
             synchronized (clientMap) {
                 if (!clientMap.containsKey(shardId)) {
-                    clientMap.put(shardId, builder.build());
+                    clientMap.put(shardId, clientFactory.create(config, httpConfig));
                 }
             }
         }
@@ -77,4 +129,9 @@ public class ClientManager {
     public static String genKey(String endpoint, String projectName, String topicName) {
         return endpoint + "@" + projectName + "@" + topicName;
     }
+
+    public static String genKey(String endpoint, String projectName, String topicName, HttpConfig.CompressType compressType) {
+        String key = genKey(endpoint, projectName, topicName);
+        return compressType == null ? key : key + "@" + compressType.name();
+    }
 }
@@ -1,18 +1,37 @@
 package com.aliyun.datahub.clientlibrary.common;
 
 import com.aliyun.datahub.client.common.DatahubConfig;
+import com.aliyun.datahub.client.http.HttpConfig;
 
 import java.util.concurrent.ConcurrentHashMap;
 
 public abstract class ClientManagerFactory {
     private static final ConcurrentHashMap<String, ClientManager> clientManagerPool = new ConcurrentHashMap<>();
+    private static volatile ClientFactory clientFactory = ClientFactory.DEFAULT;
+
+    /**
+     * Client managers created afterwards get their clients from the factory, kept in the package for
+     * benchmarks and tests to run without network, users build a ClientManager with a factory instead
+     * @param factory The client factory, null to restore the default one.
+     */
+    static void setClientFactory(ClientFactory factory) {
+        clientFactory = factory == null ? ClientFactory.DEFAULT : factory;
+    }
 
     public static ClientManager getClientManager(String projectName, String topicName, DatahubConfig datahubConfig) {
-        String key = ClientManager.genKey(datahubConfig.getEndpoint(), projectName, topicName);
+        return getClientManager(projectName, topicName, datahubConfig, new HttpConfig());
+    }
+
+    /**
+     * Clients with different compression are not shared
+     */
+    public static ClientManager getClientManager(String projectName, String topicName,
+                                                 DatahubConfig datahubConfig, HttpConfig httpConfig) {
+        String key = ClientManager.genKey(datahubConfig.getEndpoint(), projectName, topicName, httpConfig.getCompressType());
         if (!clientManagerPool.containsKey(key)) {
             synchronized (clientManagerPool) {
                 if (!clientManagerPool.containsKey(key)) {
-                    clientManagerPool.put(key, new ClientManager(projectName, topicName, datahubConfig));
+                    clientManagerPool.put(key, new ClientManager(projectName, topicName, datahubConfig, httpConfig, clientFactory));
                 }
             }
         }
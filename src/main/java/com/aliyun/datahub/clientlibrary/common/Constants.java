@@ -6,13 +6,19 @@ public class Constants {
 
     public static final int MIN_FETCH_SIZE = 100;
     public static final int MAX_FETCH_SIZE = 1000;
+    // records fetched ahead for a shard may grow up to it when adaptive
+    public static final int MAX_ADAPTIVE_FETCH_SIZE = 4000;
 
     public static final int MAX_FETCH_TIMES = 10;
-    public static final int MAX_SHARD_READER_POOL_SIZE = 1024;
+    // an idle shard is fetched at most once per interval
+    public static final long EMPTY_FETCH_INTERVAL_MS = 200;
+    // virtual threads are cheap, let every shard fetch at once
+    public static final int MAX_VIRTUAL_FETCH_THREADS = 4096;
 
     public static final int RETRY_TIMES = 3;
     public static final int FETCH_RETRY_TIMES = 15;
     public static final long RETRY_INTERVAL_MS = 1000;
+    public static final long RETRY_BASE_INTERVAL_MS = 100;
 
     public static final float HEARTBEAT_INTERVAL_SCALE = 0.66f;
     public static final long UPDATE_SHARD_META_INTERVAL_MS = 300000;
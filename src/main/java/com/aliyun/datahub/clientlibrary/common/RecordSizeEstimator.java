@@ -0,0 +1,101 @@
+package com.aliyun.datahub.clientlibrary.common;
+
+import com.aliyun.datahub.client.model.*;
+import com.aliyun.datahub.clientlibrary.models.TopicInfo;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estimate the serialized size of record, conservative for numbers since the wire form may be text
+ */
+public class RecordSizeEstimator {
+    // fixed cost of shard id, hash key and framing for each record
+    private static final int RECORD_OVERHEAD = 32;
+    // tag and length of each field or attribute
+    private static final int FIELD_OVERHEAD = 2;
+    private static final int BIGINT_SIZE = 20;
+    private static final int DOUBLE_SIZE = 24;
+    private static final int BOOLEAN_SIZE = 5;
+
+    // null for blob topic
+    private RecordSchema schema;
+
+    public RecordSizeEstimator(TopicInfo topicInfo) {
+        if (RecordType.TUPLE.equals(topicInfo.getRecordType())) {
+            this.schema = topicInfo.getRecordSchema();
+        }
+    }
+
+    public long estimate(RecordEntry record) {
+        long size = RECORD_OVERHEAD;
+        Map<String, String> attributes = record.getAttributes();
+        if (attributes != null) {
+            for (Map.Entry<String, String> entry : attributes.entrySet()) {
+                size += FIELD_OVERHEAD * 2 + stringSize(entry.getKey()) + stringSize(entry.getValue());
+            }
+        }
+
+        RecordData data = record.getRecordData();
+        if (data instanceof BlobRecordData) {
+            byte[] bytes = ((BlobRecordData) data).getData();
+            size += bytes == null ? 0 : bytes.length;
+        } else if (data instanceof TupleRecordData) {
+            size += tupleSize((TupleRecordData) data);
+        }
+        return size;
+    }
+
+    private long tupleSize(TupleRecordData data) {
+        RecordSchema recordSchema = schema != null ? schema : data.getRecordSchema();
+        if (recordSchema == null) {
+            return 0;
+        }
+
+        long size = 0;
+        List<Field> fields = recordSchema.getFields();
+        for (int i = 0; i < fields.size(); ++i) {
+            Object value = data.getField(i);
+            size += FIELD_OVERHEAD;
+            if (value != null) {
+                size += fieldSize(fields.get(i).getType(), value);
+            }
+        }
+        return size;
+    }
+
+    private static long fieldSize(FieldType type, Object value) {
+        switch (type) {
+            case BIGINT:
+            case TIMESTAMP:
+                return BIGINT_SIZE;
+            case DOUBLE:
+                return DOUBLE_SIZE;
+            case BOOLEAN:
+                return BOOLEAN_SIZE;
+            case STRING:
+                return value instanceof String ? stringSize((String) value) : stringSize(value.toString());
+            default:
+                return stringSize(value.toString());
+        }
+    }
+
+    private static int stringSize(String value) {
+        if (value == null) {
+            return 0;
+        }
+        // utf-8 length without encoding the string
+        int size = 0;
+        for (int i = 0; i < value.length(); ++i) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                size += 1;
+            } else if (c < 0x800 || Character.isSurrogate(c)) {
+                size += 2;
+            } else {
+                size += 3;
+            }
+        }
+        return size;
+    }
+}
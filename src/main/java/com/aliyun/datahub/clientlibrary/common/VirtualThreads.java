@@ -0,0 +1,47 @@
+package com.aliyun.datahub.clientlibrary.common;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Virtual threads of java 21 or later, looked up by reflection since the library targets java 7
+ */
+public class VirtualThreads {
+    private static final Logger LOG = LoggerFactory.getLogger(VirtualThreads.class);
+
+    // null if not supported
+    private static final ThreadFactory VIRTUAL_THREAD_FACTORY = createVirtualThreadFactory();
+
+    public static boolean isSupported() {
+        return VIRTUAL_THREAD_FACTORY != null;
+    }
+
+    /**
+     * @param virtual Whether to use virtual threads.
+     * @return A factory of virtual threads if asked and supported, or of platform threads
+     */
+    public static ThreadFactory threadFactory(boolean virtual) {
+        if (!virtual) {
+            return Executors.defaultThreadFactory();
+        }
+        if (VIRTUAL_THREAD_FACTORY == null) {
+            LOG.warn("Virtual threads not supported, use platform threads, Java: {}",
+                    System.getProperty("java.version"));
+            return Executors.defaultThreadFactory();
+        }
+        return VIRTUAL_THREAD_FACTORY;
+    }
+
+    private static ThreadFactory createVirtualThreadFactory() {
+        try {
+            // Thread.ofVirtual().factory()
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+}
@@ -30,6 +30,18 @@ public abstract class BaseConfig {
         return httpConfig;
     }
 
+    public HttpConfig.CompressType getCompressType() {
+        return httpConfig.getCompressType();
+    }
+
+    /**
+     * Compress request and response body, saves network traffic at the cost of cpu
+     * @param compressType LZ4 or DEFLATE, null to disable compression.
+     */
+    public void setCompressType(HttpConfig.CompressType compressType) {
+        httpConfig.setCompressType(compressType);
+    }
+
     public RecordInterceptor getInterceptor() {
         return interceptor;
     }
@@ -0,0 +1,18 @@
+package com.aliyun.datahub.clientlibrary.config;
+
+public enum BufferFullPolicy {
+    /**
+     * Wait for buffer space up to max block time, then fail the record
+     */
+    BLOCK,
+
+    /**
+     * Fail the record at once
+     */
+    FAIL,
+
+    /**
+     * Fail the oldest buffered records to make space, block if all of them are being sent
+     */
+    DROP_OLDEST
+}
@@ -4,6 +4,10 @@ import com.aliyun.datahub.client.auth.Account;
 import com.aliyun.datahub.client.auth.AliyunAccount;
 import com.aliyun.datahub.clientlibrary.interceptor.RecordInterceptor;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
 public class ConsumerConfig extends BaseConfig {
     private static final long MIN_OFFSET_COMMIT_TIMEOUT_MS = 10000;
     private static final long MAX_OFFSET_COMMIT_TIMEOUT_MS = 300000;
@@ -12,11 +16,26 @@ public class ConsumerConfig extends BaseConfig {
     private static final long MIN_CONSUMER_SESSION_TIMEOUT_MS = 60000;
     private static final long MAX_CONSUMER_SESSION_TIMEOUT_MS = 180000;
     private static final int DEFAULT_FETCH_SIZE = 1000;
+    private static final int MAX_FETCH_THREADS = 256;
+    private static final int DEFAULT_FETCH_THREADS = 16;
+    private static final long MIN_FETCH_BUFFER_SIZE = 1024 * 1024;
+    private static final long DEFAULT_FETCH_BUFFER_SIZE = 256 * 1024 * 1024;
+    private static final long DEFAULT_SHARD_FETCH_BUFFER_SIZE = 16 * 1024 * 1024;
 
     private boolean autoCommit = true;
     private long offsetCommitTimeoutMs = DEFAULT_OFFSET_COMMIT_TIMEOUT_MS;
     private long sessionTimeoutMs = MIN_CONSUMER_SESSION_TIMEOUT_MS;
     private int fetchSize = DEFAULT_FETCH_SIZE;
+    private boolean adaptiveFetchSize = true;
+    private int fetchThreads = DEFAULT_FETCH_THREADS;
+    private boolean virtualThreads = false;
+    private boolean columnarRead = false;
+    private boolean blobBatchRead = false;
+    private boolean directBlobBuffer = false;
+    private long fetchBufferSize = DEFAULT_FETCH_BUFFER_SIZE;
+    private long shardFetchBufferSize = DEFAULT_SHARD_FETCH_BUFFER_SIZE;
+    private ReadPolicy readPolicy = ReadPolicy.OLDEST_FIRST;
+    private Map<String, Integer> shardWeights = Collections.emptyMap();
 
     public ConsumerConfig(String endpoint, String accessId, String accessKey) {
         super(endpoint, new AliyunAccount(accessId, accessKey));
@@ -60,6 +79,118 @@ public class ConsumerConfig extends BaseConfig {
         this.fetchSize = fetchSize;
     }
 
+    public boolean isAdaptiveFetchSize() {
+        return adaptiveFetchSize;
+    }
+
+    /**
+     * Adapt fetch size of each shard to its traffic, starting from fetchSize
+     * @param adaptiveFetchSize Whether to adapt, true by default.
+     */
+    public void setAdaptiveFetchSize(boolean adaptiveFetchSize) {
+        this.adaptiveFetchSize = adaptiveFetchSize;
+    }
+
+    public int getFetchThreads() {
+        return fetchThreads;
+    }
+
+    /**
+     * Threads to fetch records for all shards of a consumer, shards needing records most are fetched first
+     * @param fetchThreads The count of threads, 16 by default.
+     */
+    public void setFetchThreads(int fetchThreads) {
+        if (fetchThreads < 1) {
+            this.fetchThreads = 1;
+        } else if (fetchThreads > MAX_FETCH_THREADS) {
+            this.fetchThreads = MAX_FETCH_THREADS;
+        } else {
+            this.fetchThreads = fetchThreads;
+        }
+    }
+
+    public boolean isVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Run fetch and offset commit on virtual threads if the JVM supports them, java 21 or later.
+     * Fetch is then not limited by fetchThreads, platform threads are used otherwise
+     * @param virtualThreads Whether to use virtual threads, false by default.
+     */
+    public void setVirtualThreads(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
+    public boolean isColumnarRead() {
+        return columnarRead;
+    }
+
+    /**
+     * Keep records of tuple topic fetched as columnar batches, read by readTupleBatches instead of read
+     * @param columnarRead Whether to read by columns, false by default.
+     */
+    public void setColumnarRead(boolean columnarRead) {
+        this.columnarRead = columnarRead;
+    }
+
+    public boolean isBlobBatchRead() {
+        return blobBatchRead;
+    }
+
+    /**
+     * Keep data of blob topic fetched in pooled buffers by batch, read by readBlobBatches instead of read
+     * @param blobBatchRead Whether to read blob batches, false by default.
+     */
+    public void setBlobBatchRead(boolean blobBatchRead) {
+        this.blobBatchRead = blobBatchRead;
+    }
+
+    public boolean isDirectBlobBuffer() {
+        return directBlobBuffer;
+    }
+
+    /**
+     * Allocate buffers of blob batches out of heap
+     * @param directBlobBuffer Whether to use direct buffers, false by default.
+     */
+    public void setDirectBlobBuffer(boolean directBlobBuffer) {
+        this.directBlobBuffer = directBlobBuffer;
+    }
+
+    public long getFetchBufferSize() {
+        return fetchBufferSize;
+    }
+
+    /**
+     * Max bytes of records fetched but not read for all shards, fetching pauses until records are read.
+     * Idle pooled buffers of blob batches count against it as well
+     * @param fetchBufferSize Buffer size in bytes, estimated by the serialized size of records.
+     */
+    public void setFetchBufferSize(long fetchBufferSize) {
+        if (fetchBufferSize < MIN_FETCH_BUFFER_SIZE) {
+            this.fetchBufferSize = MIN_FETCH_BUFFER_SIZE;
+        } else {
+            this.fetchBufferSize = fetchBufferSize;
+        }
+    }
+
+    public long getShardFetchBufferSize() {
+        return shardFetchBufferSize;
+    }
+
+    /**
+     * Max bytes of records fetched but not read for each shard
+     * @param shardFetchBufferSize Buffer size in bytes, estimated by the serialized size of records.
+     */
+    public void setShardFetchBufferSize(long shardFetchBufferSize) {
+        if (shardFetchBufferSize < MIN_FETCH_BUFFER_SIZE) {
+            this.shardFetchBufferSize = MIN_FETCH_BUFFER_SIZE;
+        } else {
+            this.shardFetchBufferSize = shardFetchBufferSize;
+        }
+    }
+
     public long getSessionTimeoutMs() {
         return sessionTimeoutMs;
     }
@@ -73,4 +204,29 @@ public class ConsumerConfig extends BaseConfig {
             this.sessionTimeoutMs = sessionTimeoutMs;
         }
     }
+
+    public ReadPolicy getReadPolicy() {
+        return readPolicy;
+    }
+
+    /**
+     * Decide which shard to read next among the shards with records fetched
+     * @param readPolicy The read policy, OLDEST_FIRST by default.
+     */
+    public void setReadPolicy(ReadPolicy readPolicy) {
+        this.readPolicy = readPolicy == null ? ReadPolicy.OLDEST_FIRST : readPolicy;
+    }
+
+    public Map<String, Integer> getShardWeights() {
+        return shardWeights;
+    }
+
+    /**
+     * Weights of shards for WEIGHTED_ROUND_ROBIN, shards not specified weigh 1
+     * @param shardWeights The map from shard id to weight, null for all weigh 1.
+     */
+    public void setShardWeights(Map<String, Integer> shardWeights) {
+        this.shardWeights = shardWeights == null ? Collections.<String, Integer>emptyMap()
+                : new HashMap<>(shardWeights);
+    }
 }
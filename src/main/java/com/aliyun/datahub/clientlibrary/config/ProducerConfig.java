@@ -5,6 +5,59 @@ import com.aliyun.datahub.client.auth.AliyunAccount;
 import com.aliyun.datahub.clientlibrary.interceptor.RecordInterceptor;
 
 public class ProducerConfig extends BaseConfig {
+    private static final int MIN_ASYNC_BATCH_COUNT = 1;
+    private static final int MAX_ASYNC_BATCH_COUNT = 10000;
+    private static final int DEFAULT_ASYNC_BATCH_COUNT = 1000;
+
+    private static final long MIN_ASYNC_BATCH_SIZE = 1024;
+    private static final long MAX_ASYNC_BATCH_SIZE = 4 * 1024 * 1024;
+    private static final long DEFAULT_ASYNC_BATCH_SIZE = 1024 * 1024;
+
+    private static final long MAX_ASYNC_LINGER_TIME_MS = 60000;
+    private static final long DEFAULT_ASYNC_LINGER_TIME_MS = 100;
+    private static final int DEFAULT_ASYNC_RETRY_TIMES = 3;
+
+    private static final int MIN_REQUEST_RECORD_COUNT = 1;
+    private static final int MAX_REQUEST_RECORD_COUNT = 10000;
+    private static final int DEFAULT_REQUEST_RECORD_COUNT = 1000;
+    private static final long MIN_REQUEST_SIZE = 1024;
+    private static final long MAX_REQUEST_SIZE = 4 * 1024 * 1024;
+    private static final int MAX_PARALLEL_WRITE_THREADS = 256;
+    private static final int DEFAULT_PARALLEL_WRITE_THREADS = 16;
+    private static final int MAX_IN_FLIGHT_REQUESTS_PER_SHARD = 16;
+    private static final int DEFAULT_IN_FLIGHT_REQUESTS_PER_SHARD = 1;
+    private static final int MAX_ASYNC_SEND_THREADS = 256;
+    private static final int DEFAULT_ASYNC_SEND_THREADS = 16;
+    private static final long DEFAULT_MIN_COMPRESS_SIZE = 1024;
+    private static final long MIN_BUFFER_SIZE = 1024 * 1024;
+    private static final long DEFAULT_BUFFER_SIZE = 64 * 1024 * 1024;
+    private static final long DEFAULT_MAX_BLOCK_TIME_MS = 60000;
+    private static final long DEFAULT_RETRY_BACKOFF_MS = 100;
+    private static final long DEFAULT_MAX_RETRY_BACKOFF_MS = 5000;
+    private static final int MAX_RECORD_POOL_SIZE = 1024 * 1024;
+    private static final int DEFAULT_RECORD_POOL_SIZE = 16384;
+    private static final long DEFAULT_CLOSE_TIMEOUT_MS = 30000;
+
+    private int asyncBatchCount = DEFAULT_ASYNC_BATCH_COUNT;
+    private long asyncBatchSize = DEFAULT_ASYNC_BATCH_SIZE;
+    private long asyncLingerTimeMs = DEFAULT_ASYNC_LINGER_TIME_MS;
+    private int asyncRetryTimes = DEFAULT_ASYNC_RETRY_TIMES;
+    private String partitionKeyAttribute;
+    private ShardPickStrategy shardPickStrategy = ShardPickStrategy.ROUND_ROBIN;
+    private boolean parallelWrite = false;
+    private int parallelWriteThreads = DEFAULT_PARALLEL_WRITE_THREADS;
+    private int maxRequestRecordCount = DEFAULT_REQUEST_RECORD_COUNT;
+    private long maxRequestSize = MAX_REQUEST_SIZE;
+    private int maxInFlightRequestsPerShard = DEFAULT_IN_FLIGHT_REQUESTS_PER_SHARD;
+    private int asyncSendThreads = DEFAULT_ASYNC_SEND_THREADS;
+    private long minCompressSize = DEFAULT_MIN_COMPRESS_SIZE;
+    private long bufferSize = DEFAULT_BUFFER_SIZE;
+    private BufferFullPolicy bufferFullPolicy = BufferFullPolicy.BLOCK;
+    private long maxBlockTimeMs = DEFAULT_MAX_BLOCK_TIME_MS;
+    private long retryBackoffMs = DEFAULT_RETRY_BACKOFF_MS;
+    private long maxRetryBackoffMs = DEFAULT_MAX_RETRY_BACKOFF_MS;
+    private int recordPoolSize = DEFAULT_RECORD_POOL_SIZE;
+    private long closeTimeoutMs = DEFAULT_CLOSE_TIMEOUT_MS;
 
     public ProducerConfig(String endpoint, String accessId, String accessKey) {
         super(endpoint, new AliyunAccount(accessId, accessKey));
@@ -20,4 +73,282 @@ public class ProducerConfig extends BaseConfig {
         super(endpoint, account, interceptor);
         datahubConfig.setEnableBinary(true);
     }
+
+    public int getAsyncBatchCount() {
+        return asyncBatchCount;
+    }
+
+    public void setAsyncBatchCount(int asyncBatchCount) {
+        if (asyncBatchCount < MIN_ASYNC_BATCH_COUNT) {
+            this.asyncBatchCount = MIN_ASYNC_BATCH_COUNT;
+        } else if (asyncBatchCount > MAX_ASYNC_BATCH_COUNT) {
+            this.asyncBatchCount = MAX_ASYNC_BATCH_COUNT;
+        } else {
+            this.asyncBatchCount = asyncBatchCount;
+        }
+    }
+
+    public long getAsyncBatchSize() {
+        return asyncBatchSize;
+    }
+
+    public void setAsyncBatchSize(long asyncBatchSize) {
+        if (asyncBatchSize < MIN_ASYNC_BATCH_SIZE) {
+            this.asyncBatchSize = MIN_ASYNC_BATCH_SIZE;
+        } else if (asyncBatchSize > MAX_ASYNC_BATCH_SIZE) {
+            this.asyncBatchSize = MAX_ASYNC_BATCH_SIZE;
+        } else {
+            this.asyncBatchSize = asyncBatchSize;
+        }
+    }
+
+    public long getAsyncLingerTimeMs() {
+        return asyncLingerTimeMs;
+    }
+
+    public void setAsyncLingerTimeMs(long asyncLingerTimeMs) {
+        if (asyncLingerTimeMs < 0) {
+            this.asyncLingerTimeMs = 0;
+        } else if (asyncLingerTimeMs > MAX_ASYNC_LINGER_TIME_MS) {
+            this.asyncLingerTimeMs = MAX_ASYNC_LINGER_TIME_MS;
+        } else {
+            this.asyncLingerTimeMs = asyncLingerTimeMs;
+        }
+    }
+
+    public int getAsyncRetryTimes() {
+        return asyncRetryTimes;
+    }
+
+    public void setAsyncRetryTimes(int asyncRetryTimes) {
+        this.asyncRetryTimes = Math.max(0, asyncRetryTimes);
+    }
+
+    public String getPartitionKeyAttribute() {
+        return partitionKeyAttribute;
+    }
+
+    /**
+     * Records with this attribute are written to the shard whose hash range owns md5 of the value,
+     * records without it are still written by round robin
+     * @param partitionKeyAttribute The attribute name of partition key, null to disable.
+     */
+    public void setPartitionKeyAttribute(String partitionKeyAttribute) {
+        this.partitionKeyAttribute = partitionKeyAttribute;
+    }
+
+    public ShardPickStrategy getShardPickStrategy() {
+        return shardPickStrategy;
+    }
+
+    public void setShardPickStrategy(ShardPickStrategy shardPickStrategy) {
+        this.shardPickStrategy = shardPickStrategy == null ? ShardPickStrategy.ROUND_ROBIN : shardPickStrategy;
+    }
+
+    public boolean isParallelWrite() {
+        return parallelWrite;
+    }
+
+    /**
+     * Split the records of one send into requests and write them to several shards concurrently
+     * @param parallelWrite Enable parallel write or not.
+     */
+    public void setParallelWrite(boolean parallelWrite) {
+        this.parallelWrite = parallelWrite;
+    }
+
+    public int getParallelWriteThreads() {
+        return parallelWriteThreads;
+    }
+
+    public void setParallelWriteThreads(int parallelWriteThreads) {
+        if (parallelWriteThreads < 1) {
+            this.parallelWriteThreads = 1;
+        } else if (parallelWriteThreads > MAX_PARALLEL_WRITE_THREADS) {
+            this.parallelWriteThreads = MAX_PARALLEL_WRITE_THREADS;
+        } else {
+            this.parallelWriteThreads = parallelWriteThreads;
+        }
+    }
+
+    public int getMaxRequestRecordCount() {
+        return maxRequestRecordCount;
+    }
+
+    public void setMaxRequestRecordCount(int maxRequestRecordCount) {
+        if (maxRequestRecordCount < MIN_REQUEST_RECORD_COUNT) {
+            this.maxRequestRecordCount = MIN_REQUEST_RECORD_COUNT;
+        } else if (maxRequestRecordCount > MAX_REQUEST_RECORD_COUNT) {
+            this.maxRequestRecordCount = MAX_REQUEST_RECORD_COUNT;
+        } else {
+            this.maxRequestRecordCount = maxRequestRecordCount;
+        }
+    }
+
+    public long getMaxRequestSize() {
+        return maxRequestSize;
+    }
+
+    public void setMaxRequestSize(long maxRequestSize) {
+        if (maxRequestSize < MIN_REQUEST_SIZE) {
+            this.maxRequestSize = MIN_REQUEST_SIZE;
+        } else if (maxRequestSize > MAX_REQUEST_SIZE) {
+            this.maxRequestSize = MAX_REQUEST_SIZE;
+        } else {
+            this.maxRequestSize = maxRequestSize;
+        }
+    }
+
+    public int getMaxInFlightRequestsPerShard() {
+        return maxInFlightRequestsPerShard;
+    }
+
+    /**
+     * Max requests of sendAsync outstanding on one shard, callbacks still complete in send order.
+     * Records of one shard may be written out of order when more than 1
+     * @param maxInFlightRequestsPerShard Max in flight requests per shard.
+     */
+    public void setMaxInFlightRequestsPerShard(int maxInFlightRequestsPerShard) {
+        if (maxInFlightRequestsPerShard < 1) {
+            this.maxInFlightRequestsPerShard = 1;
+        } else if (maxInFlightRequestsPerShard > MAX_IN_FLIGHT_REQUESTS_PER_SHARD) {
+            this.maxInFlightRequestsPerShard = MAX_IN_FLIGHT_REQUESTS_PER_SHARD;
+        } else {
+            this.maxInFlightRequestsPerShard = maxInFlightRequestsPerShard;
+        }
+    }
+
+    public int getAsyncSendThreads() {
+        return asyncSendThreads;
+    }
+
+    public void setAsyncSendThreads(int asyncSendThreads) {
+        if (asyncSendThreads < 1) {
+            this.asyncSendThreads = 1;
+        } else if (asyncSendThreads > MAX_ASYNC_SEND_THREADS) {
+            this.asyncSendThreads = MAX_ASYNC_SEND_THREADS;
+        } else {
+            this.asyncSendThreads = asyncSendThreads;
+        }
+    }
+
+    public long getMinCompressSize() {
+        return minCompressSize;
+    }
+
+    /**
+     * Requests smaller than this are sent without compression, only works if compress type is set
+     * @param minCompressSize Min estimated request size in bytes to compress.
+     */
+    public void setMinCompressSize(long minCompressSize) {
+        if (minCompressSize < 0) {
+            this.minCompressSize = 0;
+        } else if (minCompressSize > MAX_REQUEST_SIZE) {
+            this.minCompressSize = MAX_REQUEST_SIZE;
+        } else {
+            this.minCompressSize = minCompressSize;
+        }
+    }
+
+    public long getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * Max estimated bytes of records buffered by sendAsync across all shards
+     * @param bufferSize Buffer size in bytes.
+     */
+    public void setBufferSize(long bufferSize) {
+        if (bufferSize < MIN_BUFFER_SIZE) {
+            this.bufferSize = MIN_BUFFER_SIZE;
+        } else {
+            this.bufferSize = bufferSize;
+        }
+    }
+
+    public BufferFullPolicy getBufferFullPolicy() {
+        return bufferFullPolicy;
+    }
+
+    public void setBufferFullPolicy(BufferFullPolicy bufferFullPolicy) {
+        this.bufferFullPolicy = bufferFullPolicy == null ? BufferFullPolicy.BLOCK : bufferFullPolicy;
+    }
+
+    public long getMaxBlockTimeMs() {
+        return maxBlockTimeMs;
+    }
+
+    /**
+     * Max time sendAsync waits for buffer space
+     * @param maxBlockTimeMs Max block time in milliseconds.
+     */
+    public void setMaxBlockTimeMs(long maxBlockTimeMs) {
+        if (maxBlockTimeMs < 0) {
+            this.maxBlockTimeMs = 0;
+        } else {
+            this.maxBlockTimeMs = maxBlockTimeMs;
+        }
+    }
+
+    public long getCloseTimeoutMs() {
+        return closeTimeoutMs;
+    }
+
+    /**
+     * Max time close waits for the background sender to send what is buffered, records still buffered fail after it
+     * @param closeTimeoutMs Close timeout in milliseconds.
+     */
+    public void setCloseTimeoutMs(long closeTimeoutMs) {
+        if (closeTimeoutMs < 0) {
+            this.closeTimeoutMs = 0;
+        } else {
+            this.closeTimeoutMs = closeTimeoutMs;
+        }
+    }
+
+    public long getRetryBackoffMs() {
+        return retryBackoffMs;
+    }
+
+    /**
+     * Retry waits a random time up to retryBackoffMs * 2 ^ retry, capped by maxRetryBackoffMs
+     * @param retryBackoffMs Base backoff in milliseconds.
+     */
+    public void setRetryBackoffMs(long retryBackoffMs) {
+        if (retryBackoffMs < 0) {
+            this.retryBackoffMs = 0;
+        } else {
+            this.retryBackoffMs = retryBackoffMs;
+        }
+    }
+
+    public long getMaxRetryBackoffMs() {
+        return maxRetryBackoffMs;
+    }
+
+    public void setMaxRetryBackoffMs(long maxRetryBackoffMs) {
+        if (maxRetryBackoffMs < 0) {
+            this.maxRetryBackoffMs = 0;
+        } else {
+            this.maxRetryBackoffMs = maxRetryBackoffMs;
+        }
+    }
+
+    public int getRecordPoolSize() {
+        return recordPoolSize;
+    }
+
+    /**
+     * Max idle records kept for reuse by Producer.newRecord, records are recycled once written or failed
+     * @param recordPoolSize Record pool size, 0 to disable reuse.
+     */
+    public void setRecordPoolSize(int recordPoolSize) {
+        if (recordPoolSize < 0) {
+            this.recordPoolSize = 0;
+        } else if (recordPoolSize > MAX_RECORD_POOL_SIZE) {
+            this.recordPoolSize = MAX_RECORD_POOL_SIZE;
+        } else {
+            this.recordPoolSize = recordPoolSize;
+        }
+    }
 }
@@ -0,0 +1,25 @@
+package com.aliyun.datahub.clientlibrary.config;
+
+public enum ReadPolicy {
+    /**
+     * Read the shard with the oldest record first, records are read in about time order
+     * but a shard with a big backlog holds back the others
+     */
+    OLDEST_FIRST,
+
+    /**
+     * Read shards in turn, a shard gets as many turns in a row as its weight,
+     * see {@link ConsumerConfig#setShardWeights}
+     */
+    WEIGHTED_ROUND_ROBIN,
+
+    /**
+     * Read shards at random, with chance in proportion to the age of their oldest record
+     */
+    LAG_PROPORTIONAL,
+
+    /**
+     * Read shards strictly in turn
+     */
+    FAIR
+}
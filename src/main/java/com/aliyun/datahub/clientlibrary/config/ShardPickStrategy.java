@@ -0,0 +1,14 @@
+package com.aliyun.datahub.clientlibrary.config;
+
+public enum ShardPickStrategy {
+    /**
+     * Pick shards in turn
+     */
+    ROUND_ROBIN,
+
+    /**
+     * Pick the less loaded of two random healthy shards, load is the latency
+     * average weighted by requests in flight
+     */
+    LEAST_LOADED
+}
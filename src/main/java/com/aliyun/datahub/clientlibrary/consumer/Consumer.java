@@ -6,12 +6,17 @@ import com.aliyun.datahub.client.util.FormatUtils;
 import com.aliyun.datahub.clientlibrary.common.Constants;
 import com.aliyun.datahub.clientlibrary.config.ConsumerConfig;
 import com.aliyun.datahub.clientlibrary.models.Assignment;
+import com.aliyun.datahub.clientlibrary.models.BlobBatch;
 import com.aliyun.datahub.clientlibrary.models.Offset;
+import com.aliyun.datahub.clientlibrary.models.ShardBatch;
+import com.aliyun.datahub.clientlibrary.models.TupleBatch;
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -106,7 +111,7 @@ public class Consumer {
     }
 
     /**
-     * Read record
+     * Read record, wait up to (maxRetry + 1) * 1s until a record is fetched
      *
      * @param maxRetry The max retry times.
      * @return One record or null if not fetched
@@ -119,25 +124,155 @@ public class Consumer {
             throw new InvalidParameterException("Retry must not be negative");
         }
 
-        for (int i = 0; i <= maxRetry && !closed.get(); ++i) {
+        long deadline = System.currentTimeMillis() + (maxRetry + 1) * Constants.RETRY_INTERVAL_MS;
+        while (!closed.get()) {
             syncAssignmentIfNeeded();
             offsetCoordinator.commitIfNeeded();
 
+            long fetchVersion = shardGroupReader.getFetchVersion();
             RecordEntry record = shardGroupReader.read();
             if (record != null) {
                 offsetCoordinator.setOffset(record.getShardId(), record.getSequence(), record.getSystemTime());
                 return record;
             }
 
-            try {
-                Thread.sleep(Constants.RETRY_INTERVAL_MS);
-            } catch (InterruptedException e) {
-                LOG.warn(e.getMessage());
+            if (!awaitFetched(fetchVersion, deadline)) {
+                break;
             }
         }
         return null;
     }
 
+    /**
+     * Read records, coordination and offset update are done once per batch instead of per record
+     *
+     * @param maxRecords The max count of records to read.
+     * @param timeoutMs  The max time to wait if no record fetched.
+     * @return Records read, empty if not fetched within timeout
+     */
+    public List<RecordEntry> readBatch(int maxRecords, long timeoutMs) {
+        return readBatch(maxRecords, timeoutMs, true);
+    }
+
+    /**
+     * @param setOffsets Whether to take records read as consumed, otherwise offsets are set by setOffset.
+     */
+    List<RecordEntry> readBatch(int maxRecords, long timeoutMs, boolean setOffsets) {
+        if (closed.get()) {
+            throw new InvalidParameterException("This consumer has already been closed");
+        }
+        if (maxRecords <= 0) {
+            throw new InvalidParameterException("Max records must be positive");
+        }
+
+        long deadline = System.currentTimeMillis() + Math.max(timeoutMs, 0);
+        while (!closed.get()) {
+            syncAssignmentIfNeeded();
+            offsetCoordinator.commitIfNeeded();
+
+            long fetchVersion = shardGroupReader.getFetchVersion();
+            List<RecordEntry> records = shardGroupReader.readBatch(maxRecords);
+            if (!records.isEmpty()) {
+                if (setOffsets) {
+                    setOffsets(records);
+                }
+                return records;
+            }
+
+            if (!awaitFetched(fetchVersion, deadline)) {
+                break;
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Read records of tuple topic as columnar batches, ConsumerConfig.setColumnarRead must be enabled
+     *
+     * @param maxRecords The max count of records to read, exceeded only if the first batch is larger.
+     * @param timeoutMs  The max time to wait if no record fetched.
+     * @return Batches read, empty if not fetched within timeout
+     */
+    public List<TupleBatch> readTupleBatches(final int maxRecords, long timeoutMs) {
+        return readBatches(maxRecords, timeoutMs, new BatchReader<TupleBatch>() {
+            @Override
+            public List<TupleBatch> read() {
+                return shardGroupReader.readTupleBatches(maxRecords);
+            }
+        });
+    }
+
+    /**
+     * Read records of blob topic as batches sharing pooled buffers, ConsumerConfig.setBlobBatchRead must be enabled.
+     * Release each batch once processed
+     *
+     * @param maxRecords The max count of records to read, exceeded only if the first batch is larger.
+     * @param timeoutMs  The max time to wait if no record fetched.
+     * @return Batches read, empty if not fetched within timeout
+     */
+    public List<BlobBatch> readBlobBatches(final int maxRecords, long timeoutMs) {
+        return readBatches(maxRecords, timeoutMs, new BatchReader<BlobBatch>() {
+            @Override
+            public List<BlobBatch> read() {
+                return shardGroupReader.readBlobBatches(maxRecords);
+            }
+        });
+    }
+
+    private interface BatchReader<T extends ShardBatch> {
+        List<T> read();
+    }
+
+    private <T extends ShardBatch> List<T> readBatches(int maxRecords, long timeoutMs, BatchReader<T> reader) {
+        if (closed.get()) {
+            throw new InvalidParameterException("This consumer has already been closed");
+        }
+        if (maxRecords <= 0) {
+            throw new InvalidParameterException("Max records must be positive");
+        }
+
+        long deadline = System.currentTimeMillis() + Math.max(timeoutMs, 0);
+        while (!closed.get()) {
+            syncAssignmentIfNeeded();
+            offsetCoordinator.commitIfNeeded();
+
+            long fetchVersion = shardGroupReader.getFetchVersion();
+            List<T> batches = reader.read();
+            if (!batches.isEmpty()) {
+                for (T batch : batches) {
+                    int last = batch.size() - 1;
+                    offsetCoordinator.setOffset(batch.getShardId(), batch.getSequence(last), batch.getSystemTime(last));
+                }
+                return batches;
+            }
+
+            if (!awaitFetched(fetchVersion, deadline)) {
+                break;
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    /**
+     * Take the record and the ones before it in the shard as consumed, ignored if the shard is no longer assigned
+     */
+    void setOffset(RecordEntry record) {
+        if (offsetCoordinator.hasShard(record.getShardId())) {
+            offsetCoordinator.setOffset(record.getShardId(), record.getSequence(), record.getSystemTime());
+        }
+    }
+
+    /**
+     * Keep assignment and offset commit going without reading
+     */
+    void commitIfNeeded() {
+        if (closed.get()) {
+            return;
+        }
+        syncAssignmentIfNeeded();
+        offsetCoordinator.commitIfNeeded();
+    }
+
     /**
      * Close the consumer to release resource
      */
@@ -183,6 +318,37 @@ public class Consumer {
         }
     }
 
+    /**
+     * Wait for fetched records instead of sleeping, wake up once per empty fetch interval
+     * to fetch idle shards again
+     * @return false if deadline reached or interrupted
+     */
+    private boolean awaitFetched(long fetchVersion, long deadline) {
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0) {
+            return false;
+        }
+        try {
+            shardGroupReader.awaitFetched(fetchVersion, Math.min(remaining, Constants.EMPTY_FETCH_INTERVAL_MS));
+        } catch (InterruptedException e) {
+            // read returns what it has, the caller sees the interrupt
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return true;
+    }
+
+    private void setOffsets(List<RecordEntry> records) {
+        // records of one shard are in order, only the last one matters
+        Map<String, RecordEntry> lastRecords = new HashMap<>();
+        for (RecordEntry record : records) {
+            lastRecords.put(record.getShardId(), record);
+        }
+        for (RecordEntry record : lastRecords.values()) {
+            offsetCoordinator.setOffset(record.getShardId(), record.getSequence(), record.getSystemTime());
+        }
+    }
+
     private void syncAssignmentIfNeeded() {
         if (shardCoordinator == null) {
             // manually assign
@@ -0,0 +1,30 @@
+package com.aliyun.datahub.clientlibrary.consumer;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Ready shard readers in a queue, each read moves the shard to the tail
+ */
+class FairPicker extends ShardReaderPicker {
+    protected final Deque<ShardReader> readyQueue = new ArrayDeque<>();
+
+    FairPicker(FetchNotifier notifier) {
+        super(notifier);
+    }
+
+    @Override
+    protected void offerReady(ShardReader shardReader) {
+        readyQueue.offerLast(shardReader);
+    }
+
+    @Override
+    protected ShardReader pollReady() {
+        return readyQueue.pollFirst();
+    }
+
+    @Override
+    protected void removeReady(ShardReader shardReader) {
+        readyQueue.remove(shardReader);
+    }
+}
@@ -0,0 +1,55 @@
+package com.aliyun.datahub.clientlibrary.consumer;
+
+import com.aliyun.datahub.clientlibrary.common.BufferPool;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bytes of records fetched but not read yet, shared by the shard readers of a group. A fetch task
+ * only checks the limit before fetching, so one response may go beyond it, and it never waits for
+ * memory: shard readers stop fetching until read releases the bytes. Idle buffers of blob batches are
+ * pooled here too and count against the same limit, they are dropped rather than stop fetching
+ */
+class FetchMemory {
+    private final long limit;
+    private final AtomicLong used = new AtomicLong(0);
+    private final BufferPool bufferPool;
+
+    FetchMemory(long limit) {
+        this(limit, false);
+    }
+
+    FetchMemory(long limit, boolean directBuffer) {
+        this.limit = limit;
+        this.bufferPool = new BufferPool(directBuffer, limit);
+    }
+
+    BufferPool getBufferPool() {
+        return bufferPool;
+    }
+
+    boolean isAvailable() {
+        long available = limit - used.get();
+        if (available <= 0) {
+            return false;
+        }
+        bufferPool.trim(available);
+        return true;
+    }
+
+    void add(long size) {
+        used.addAndGet(size);
+    }
+
+    void release(long size) {
+        used.addAndGet(-size);
+    }
+
+    long getUsed() {
+        return used.get();
+    }
+
+    long getLimit() {
+        return limit;
+    }
+}
@@ -0,0 +1,51 @@
+package com.aliyun.datahub.clientlibrary.consumer;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Wakes up the reader waiting for records once a fetch task queued records, reached the end
+ * of shard or failed. The version tells whether something happened since the reader checked,
+ * the ready queue tells which shard readers have something to read
+ */
+class FetchNotifier {
+    private long version = 0;
+    private final ConcurrentLinkedQueue<ShardReader> readyReaders = new ConcurrentLinkedQueue<>();
+
+    synchronized long getVersion() {
+        return version;
+    }
+
+    synchronized void signal() {
+        ++version;
+        notifyAll();
+    }
+
+    void signal(ShardReader shardReader) {
+        readyReaders.offer(shardReader);
+        signal();
+    }
+
+    /**
+     * @return A shard reader signalled, maybe repeated, null if none
+     */
+    ShardReader pollReady() {
+        return readyReaders.poll();
+    }
+
+    /**
+     * @param seenVersion The version got before the reader found nothing to read.
+     * @param timeoutMs The max time to wait.
+     * @return true if signalled since the seen version
+     */
+    synchronized boolean await(long seenVersion, long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (version == seenVersion) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(remaining);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,69 @@
+package com.aliyun.datahub.clientlibrary.consumer;
+
+import com.aliyun.datahub.clientlibrary.common.Constants;
+import com.aliyun.datahub.clientlibrary.common.VirtualThreads;
+import com.aliyun.datahub.clientlibrary.config.ConsumerConfig;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Run fetch tasks of all shard readers in a group on a bounded pool. Tasks wait in a priority queue,
+ * the shard with the least records buffered is fetched first, then first come first served.
+ * A shard reader has at most one task at a time, so the queue is bounded by the count of shards
+ */
+class FetchScheduler extends ThreadPoolExecutor {
+    private final AtomicLong sequence = new AtomicLong(0);
+
+    interface Prioritized {
+        /**
+         * @return The priority, lower runs first
+         */
+        double getPriority();
+    }
+
+    FetchScheduler(int threads, ThreadFactory threadFactory) {
+        super(threads, threads, 60L, TimeUnit.SECONDS, new PriorityBlockingQueue<Runnable>(), threadFactory);
+        allowCoreThreadTimeOut(true);
+    }
+
+    static FetchScheduler create(ConsumerConfig config) {
+        if (config.isVirtualThreads() && VirtualThreads.isSupported()) {
+            return new FetchScheduler(Constants.MAX_VIRTUAL_FETCH_THREADS, VirtualThreads.threadFactory(true));
+        }
+        return new FetchScheduler(config.getFetchThreads(), VirtualThreads.threadFactory(config.isVirtualThreads()));
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        super.execute(command instanceof FetchFuture ? command : newTaskFor(command, null));
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+        double priority = runnable instanceof Prioritized ? ((Prioritized) runnable).getPriority() : 0;
+        return new FetchFuture<>(Executors.callable(runnable, value), priority, sequence.getAndIncrement());
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+        return new FetchFuture<>(callable, 0, sequence.getAndIncrement());
+    }
+
+    private static class FetchFuture<T> extends FutureTask<T> implements Comparable<FetchFuture<?>> {
+        private final double priority;
+        private final long sequence;
+
+        FetchFuture(Callable<T> callable, double priority, long sequence) {
+            super(callable);
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(FetchFuture<?> other) {
+            int result = Double.compare(priority, other.priority);
+            return result != 0 ? result : Long.compare(sequence, other.sequence);
+        }
+    }
+}
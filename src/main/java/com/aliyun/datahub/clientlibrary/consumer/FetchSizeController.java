@@ -0,0 +1,49 @@
+package com.aliyun.datahub.clientlibrary.consumer;
+
+/**
+ * Adapt the count of records a shard reader fetches ahead. Double it while responses come full and the
+ * reader keeps up, halve it when responses are sparse or latency rises well above the average.
+ * Updated by the fetch task only, one at a time for a shard
+ */
+class FetchSizeController {
+    // weight of the latest latency in the moving average
+    private static final double LATENCY_WEIGHT = 0.2;
+    // latency above average by this factor shrinks the fetch size
+    private static final double LATENCY_RISE_FACTOR = 2.0;
+
+    private final int minSize;
+    private final int maxSize;
+    private volatile int fetchSize;
+    private double avgLatencyMs = -1;
+
+    FetchSizeController(int fetchSize, int minSize, int maxSize) {
+        this.fetchSize = fetchSize;
+        this.minSize = Math.min(minSize, fetchSize);
+        this.maxSize = Math.max(maxSize, fetchSize);
+    }
+
+    int getFetchSize() {
+        return fetchSize;
+    }
+
+    int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * @param requested The count of records requested.
+     * @param received The count of records in the response.
+     * @param latencyMs The time of the request.
+     * @param draining Whether the reader had read most records fetched before the request.
+     */
+    void update(int requested, int received, long latencyMs, boolean draining) {
+        boolean slow = avgLatencyMs >= 0 && latencyMs > avgLatencyMs * LATENCY_RISE_FACTOR;
+        avgLatencyMs = avgLatencyMs < 0 ? latencyMs : avgLatencyMs + (latencyMs - avgLatencyMs) * LATENCY_WEIGHT;
+
+        if (slow || received < requested / 2) {
+            fetchSize = Math.max(minSize, fetchSize / 2);
+        } else if (received >= requested && draining) {
+            fetchSize = Math.min(maxSize, fetchSize * 2);
+        }
+    }
+}
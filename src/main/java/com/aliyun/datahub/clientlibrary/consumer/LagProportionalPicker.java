@@ -0,0 +1,67 @@
+package com.aliyun.datahub.clientlibrary.consumer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Random pick weighted by the age of the front record, so a lagging shard is read more often
+ * without starving the others. O(n) of ready shards per pick
+ */
+class LagProportionalPicker extends ShardReaderPicker {
+    private final List<ShardReader> readyList = new ArrayList<>();
+
+    LagProportionalPicker(FetchNotifier notifier) {
+        super(notifier);
+    }
+
+    @Override
+    protected void offerReady(ShardReader shardReader) {
+        readyList.add(shardReader);
+    }
+
+    @Override
+    protected ShardReader pollReady() {
+        if (readyList.isEmpty()) {
+            return null;
+        }
+
+        long now = System.currentTimeMillis();
+        long[] weights = new long[readyList.size()];
+        long total = 0;
+        for (int i = 0; i < readyList.size(); ++i) {
+            total += getLag(readyList.get(i), now);
+            weights[i] = total;
+        }
+
+        long point = ThreadLocalRandom.current().nextLong(total);
+        int index = 0;
+        while (weights[index] <= point) {
+            ++index;
+        }
+
+        // swap with the last one to remove in O(1)
+        ShardReader result = readyList.get(index);
+        ShardReader last = readyList.remove(readyList.size() - 1);
+        if (last != result) {
+            readyList.set(index, last);
+        }
+        return result;
+    }
+
+    @Override
+    protected void removeReady(ShardReader shardReader) {
+        readyList.remove(shardReader);
+    }
+
+    /**
+     * A shard without record to read, but end of shard or exception to report, is read at once
+     */
+    private long getLag(ShardReader shardReader, long now) {
+        long frontTime = shardReader.frontRecordTime();
+        if (frontTime == Long.MIN_VALUE) {
+            return 1L << 40;
+        }
+        return Math.max(now - frontTime, 1);
+    }
+}
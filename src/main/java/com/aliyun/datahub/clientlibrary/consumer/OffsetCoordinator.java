@@ -6,6 +6,7 @@ import com.aliyun.datahub.client.model.SubscriptionOffset;
 import com.aliyun.datahub.clientlibrary.common.ClientManager;
 import com.aliyun.datahub.clientlibrary.common.ClientManagerFactory;
 import com.aliyun.datahub.clientlibrary.common.Constants;
+import com.aliyun.datahub.clientlibrary.common.VirtualThreads;
 import com.aliyun.datahub.clientlibrary.config.ConsumerConfig;
 import com.aliyun.datahub.clientlibrary.exception.ExceptionRetryer;
 import com.aliyun.datahub.clientlibrary.models.Offset;
@@ -32,8 +33,7 @@ class OffsetCoordinator {
     private volatile Map<String, Offset> committedOffsets = new HashMap<>();
 
     private Future commitTask;
-    private ExecutorService executor = new ThreadPoolExecutor(1, 1,
-            0L, TimeUnit.MILLISECONDS, new SynchronousQueue<Runnable>());
+    private ExecutorService executor;
 
     private volatile DatahubClientException exception;
     private final AtomicBoolean closed = new AtomicBoolean(false);
@@ -43,8 +43,11 @@ class OffsetCoordinator {
         this.projectName = projectName;
         this.topicName = topicName;
         this.subId = subId;
+        this.executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new SynchronousQueue<Runnable>(),
+                VirtualThreads.threadFactory(config.isVirtualThreads()));
 
-        this.clientManager = ClientManagerFactory.getClientManager(projectName, topicName, config.getDatahubConfig());
+        this.clientManager = ClientManagerFactory.getClientManager(projectName, topicName,
+                config.getDatahubConfig(), config.getHttpConfig());
         this.client = clientManager.getClient();
     }
 
@@ -74,6 +77,10 @@ class OffsetCoordinator {
         offset.setTimestamp(timestamp);
     }
 
+    boolean hasShard(String shardId) {
+        return readOffsets.containsKey(shardId);
+    }
+
     Map<String, Offset> openAndGetOffsets(List<String> shards) {
         List<String> shardIds = new ArrayList<>();
         Map<String, Offset> result = new HashMap<>();
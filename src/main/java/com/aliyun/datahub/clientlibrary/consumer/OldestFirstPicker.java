@@ -0,0 +1,73 @@
+package com.aliyun.datahub.clientlibrary.consumer;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Heap keyed by the system time of the front record, O(log n) per pick
+ */
+class OldestFirstPicker extends ShardReaderPicker {
+    private final PriorityQueue<Node> heap = new PriorityQueue<>();
+    // the current heap node of each ready shard reader
+    private final Map<ShardReader, Node> nodeMap = new HashMap<>();
+
+    OldestFirstPicker(FetchNotifier notifier) {
+        super(notifier);
+    }
+
+    @Override
+    protected void offerReady(ShardReader shardReader) {
+        push(shardReader, shardReader.frontRecordTime());
+    }
+
+    @Override
+    protected ShardReader pollReady() {
+        while (!heap.isEmpty()) {
+            Node node = heap.poll();
+            ShardReader shardReader = node.shardReader;
+            if (nodeMap.get(shardReader) != node) {
+                // removed or re-keyed
+                continue;
+            }
+
+            // fetch only appends to the queue, so the real key never goes below the key in heap
+            long frontTime = shardReader.frontRecordTime();
+            if (frontTime != node.key) {
+                push(shardReader, frontTime);
+                continue;
+            }
+
+            nodeMap.remove(shardReader);
+            return shardReader;
+        }
+        return null;
+    }
+
+    @Override
+    protected void removeReady(ShardReader shardReader) {
+        // node left in heap is skipped when polled
+        nodeMap.remove(shardReader);
+    }
+
+    private void push(ShardReader shardReader, long key) {
+        Node node = new Node(shardReader, key);
+        nodeMap.put(shardReader, node);
+        heap.offer(node);
+    }
+
+    private static class Node implements Comparable<Node> {
+        private final ShardReader shardReader;
+        private final long key;
+
+        Node(ShardReader shardReader, long key) {
+            this.shardReader = shardReader;
+            this.key = key;
+        }
+
+        @Override
+        public int compareTo(Node other) {
+            return key < other.key ? -1 : (key == other.key ? 0 : 1);
+        }
+    }
+}
@@ -0,0 +1,248 @@
+package com.aliyun.datahub.clientlibrary.consumer;
+
+import com.aliyun.datahub.client.exception.InvalidParameterException;
+import com.aliyun.datahub.client.model.RecordEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Process records of different shards in parallel on a pool of workers, records of one shard one at a time
+ * in order. The offset of a shard only moves to the last record processed, so records read but not processed
+ * are read again after restart. The consumer is owned and read by a dispatcher thread
+ */
+public class ParallelConsumer {
+    private static final Logger LOG = LoggerFactory.getLogger(ParallelConsumer.class);
+    private static final int MAX_BATCH_SIZE = 1000;
+    // records read but not processed for each worker thread
+    private static final int MAX_PENDING_RECORDS_PER_THREAD = 1000;
+    // records a worker processes for a shard before giving way to other shards
+    private static final int MAX_RECORDS_PER_RUN = 100;
+    private static final long READ_TIMEOUT_MS = 1000;
+    private static final long CLOSE_TIMEOUT_MS = 30000;
+
+    private final Consumer consumer;
+    private final RecordHandler handler;
+    private final ExecutorService executor;
+    private final int maxPendingRecords;
+    private final Semaphore pendingPermits;
+    private final Map<String, ShardWorker> shardWorkers = new ConcurrentHashMap<>();
+    private final AtomicBoolean started = new AtomicBoolean(false);
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    private volatile Throwable exception;
+    private Thread dispatchThread;
+
+    /**
+     * @param consumer The consumer to read, not to be used by others.
+     * @param threads The count of worker threads.
+     * @param handler The handler to process records.
+     */
+    public ParallelConsumer(Consumer consumer, int threads, RecordHandler handler) {
+        if (threads <= 0) {
+            throw new InvalidParameterException("Threads must be positive");
+        }
+        this.consumer = consumer;
+        this.handler = handler;
+        // daemon like the dispatcher, so that a consumer never closed does not keep the jvm alive
+        this.executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private final AtomicInteger index = new AtomicInteger(0);
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "datahub-parallel-consumer-worker-" + index.getAndIncrement());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.maxPendingRecords = threads * MAX_PENDING_RECORDS_PER_THREAD;
+        this.pendingPermits = new Semaphore(maxPendingRecords);
+    }
+
+    /**
+     * Start reading and processing in background
+     */
+    public void start() {
+        if (closed.get()) {
+            throw new InvalidParameterException("This parallel consumer has already been closed");
+        }
+        if (started.compareAndSet(false, true)) {
+            dispatchThread = new Thread(new Dispatcher(), "datahub-parallel-consumer-dispatcher");
+            dispatchThread.setDaemon(true);
+            dispatchThread.start();
+        }
+    }
+
+    /**
+     * @return The exception which stopped reading or processing, null if none
+     */
+    public Throwable getException() {
+        return exception;
+    }
+
+    /**
+     * Stop reading, wait for records read to be processed, then close the consumer
+     */
+    public void close() {
+        if (!closed.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            if (dispatchThread != null) {
+                dispatchThread.join(CLOSE_TIMEOUT_MS);
+            } else {
+                consumer.close();
+            }
+        } catch (InterruptedException e) {
+            LOG.warn("Close parallel consumer interrupted");
+        }
+        executor.shutdownNow();
+    }
+
+    private void fail(Throwable e) {
+        if (exception == null) {
+            exception = e;
+        }
+    }
+
+    private boolean isRunning() {
+        return !closed.get() && exception == null;
+    }
+
+    private ShardWorker getShardWorker(String shardId) {
+        ShardWorker shardWorker = shardWorkers.get(shardId);
+        if (shardWorker == null) {
+            shardWorker = new ShardWorker();
+            shardWorkers.put(shardId, shardWorker);
+        }
+        return shardWorker;
+    }
+
+    /**
+     * Move offsets to the last record processed of each shard, called by the dispatcher only
+     */
+    private void setOffsets() {
+        for (ShardWorker shardWorker : shardWorkers.values()) {
+            RecordEntry record = shardWorker.takeLastDone();
+            if (record != null) {
+                consumer.setOffset(record);
+            }
+        }
+    }
+
+    private class Dispatcher implements Runnable {
+        private void dispatch() throws InterruptedException {
+            while (isRunning()) {
+                setOffsets();
+                int capacity = Math.min(pendingPermits.availablePermits(), MAX_BATCH_SIZE);
+                if (capacity == 0) {
+                    // workers are behind, wait for one record processed
+                    consumer.commitIfNeeded();
+                    if (pendingPermits.tryAcquire(READ_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                        pendingPermits.release();
+                    }
+                    continue;
+                }
+
+                List<RecordEntry> records = consumer.readBatch(capacity, READ_TIMEOUT_MS, false);
+                // only the dispatcher acquires, never blocks
+                pendingPermits.acquire(records.size());
+                for (RecordEntry record : records) {
+                    getShardWorker(record.getShardId()).offer(record);
+                }
+            }
+        }
+
+        /**
+         * Wait for the records dispatched to be processed
+         */
+        private void drain() throws InterruptedException {
+            long deadline = System.currentTimeMillis() + CLOSE_TIMEOUT_MS;
+            while (exception == null && System.currentTimeMillis() < deadline
+                    && pendingPermits.availablePermits() < maxPendingRecords) {
+                Thread.sleep(10);
+            }
+            setOffsets();
+        }
+
+        @Override
+        public void run() {
+            try {
+                dispatch();
+                drain();
+            } catch (InterruptedException e) {
+                LOG.warn("Parallel consumer interrupted");
+            } catch (Throwable e) {
+                LOG.error("Parallel consumer read failed, Exception: {}", e.getMessage());
+                fail(e);
+            } finally {
+                consumer.close();
+            }
+        }
+    }
+
+    private class ShardWorker implements Runnable {
+        private final Queue<RecordEntry> records = new ArrayDeque<>();
+        private boolean scheduled = false;
+        private final AtomicReference<RecordEntry> lastDone = new AtomicReference<>();
+
+        void offer(RecordEntry record) {
+            synchronized (this) {
+                records.offer(record);
+                if (scheduled) {
+                    return;
+                }
+                scheduled = true;
+            }
+            executor.execute(this);
+        }
+
+        RecordEntry takeLastDone() {
+            return lastDone.getAndSet(null);
+        }
+
+        private RecordEntry poll() {
+            synchronized (this) {
+                RecordEntry record = records.poll();
+                if (record == null) {
+                    scheduled = false;
+                }
+                return record;
+            }
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < MAX_RECORDS_PER_RUN; ++i) {
+                RecordEntry record = poll();
+                if (record == null) {
+                    return;
+                }
+                if (exception == null) {
+                    try {
+                        handler.handle(record);
+                        lastDone.set(record);
+                    } catch (Throwable e) {
+                        LOG.error("Parallel consumer handle failed, ShardId: {}, Sequence: {}, Exception: {}",
+                                record.getShardId(), record.getSequence(), e.getMessage());
+                        fail(e);
+                    }
+                }
+                pendingPermits.release();
+            }
+            // give way to other shards, still scheduled
+            try {
+                executor.execute(this);
+            } catch (RejectedExecutionException e) {
+                LOG.warn("Parallel consumer closed before records processed, Exception: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.aliyun.datahub.clientlibrary.consumer;
+
+import com.aliyun.datahub.client.model.RecordEntry;
+
+public interface RecordHandler {
+    /**
+     * Called by a worker thread of ParallelConsumer, records of one shard one at a time in order.
+     * The record is taken as consumed once returned, throwing stops the parallel consumer
+     * @param record The record to process.
+     */
+    void handle(RecordEntry record) throws Exception;
+}
@@ -0,0 +1,156 @@
+package com.aliyun.datahub.clientlibrary.consumer;
+
+import com.aliyun.datahub.client.exception.InvalidParameterException;
+import com.aliyun.datahub.client.model.RecordEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * Push records of a consumer to one subscriber as it requests them. The consumer is read only while
+ * there is demand, and fetching follows reading, so a slow subscriber slows down GetRecords instead
+ * of records piling up. The publisher owns the consumer and closes it once cancelled, closed or failed
+ */
+public class RecordPublisher {
+    private static final Logger LOG = LoggerFactory.getLogger(RecordPublisher.class);
+    private static final int MAX_BATCH_SIZE = 1000;
+    // wait for records in slices, to notice cancel and close
+    private static final long READ_TIMEOUT_MS = 1000;
+
+    private final Consumer consumer;
+    private final Object lock = new Object();
+    private RecordSubscriber subscriber;
+    private volatile Thread publishThread;
+    private long demand = 0;
+    private boolean cancelled = false;
+    // a non positive request, reported by onError once the publisher stops
+    private boolean invalidRequest = false;
+    private boolean closed = false;
+
+    public RecordPublisher(Consumer consumer) {
+        this.consumer = consumer;
+    }
+
+    /**
+     * Start to publish, only one subscriber is allowed
+     * @param subscriber The subscriber to push records to.
+     */
+    public void subscribe(RecordSubscriber subscriber) {
+        synchronized (lock) {
+            if (this.subscriber != null) {
+                throw new InvalidParameterException("Record publisher already has a subscriber");
+            }
+            if (closed) {
+                throw new InvalidParameterException("This record publisher has already been closed");
+            }
+            this.subscriber = subscriber;
+        }
+
+        subscriber.onSubscribe(new Subscription());
+        publishThread = new Thread(new Publisher(), "datahub-record-publisher");
+        publishThread.setDaemon(true);
+        publishThread.start();
+    }
+
+    /**
+     * Stop publishing, the subscriber gets onComplete after records being delivered
+     */
+    public void close() {
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            lock.notifyAll();
+        }
+        if (publishThread == null) {
+            consumer.close();
+        }
+    }
+
+    private class Subscription implements RecordSubscription {
+        @Override
+        public void request(long n) {
+            synchronized (lock) {
+                if (n <= 0) {
+                    // reported by the publisher thread, as onError must not run concurrently with onNext
+                    invalidRequest = true;
+                    cancelled = true;
+                } else {
+                    demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                }
+                lock.notifyAll();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            synchronized (lock) {
+                cancelled = true;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private class Publisher implements Runnable {
+        /**
+         * Wait in slices and keep assignment and offset commit going meanwhile, so that a subscriber
+         * not requesting does not make the group take shards away from this client
+         * @return The demand, 0 if stopped
+         */
+        private long awaitDemand() throws InterruptedException {
+            while (true) {
+                synchronized (lock) {
+                    if (demand == 0 && !cancelled && !closed) {
+                        lock.wait(READ_TIMEOUT_MS);
+                    }
+                    if (demand != 0 || cancelled || closed) {
+                        return cancelled || closed ? 0 : demand;
+                    }
+                }
+                consumer.commitIfNeeded();
+            }
+        }
+
+        private void publish() throws InterruptedException {
+            long n;
+            while ((n = awaitDemand()) > 0) {
+                List<RecordEntry> records = consumer.readBatch((int) Math.min(n, MAX_BATCH_SIZE), READ_TIMEOUT_MS);
+                synchronized (lock) {
+                    if (demand > 0) {
+                        demand -= records.size();
+                    }
+                }
+                for (RecordEntry record : records) {
+                    subscriber.onNext(record);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                publish();
+                boolean invalid;
+                boolean complete;
+                synchronized (lock) {
+                    invalid = invalidRequest;
+                    complete = closed && !cancelled;
+                }
+                if (invalid) {
+                    subscriber.onError(new InvalidParameterException("Requested count must be positive"));
+                } else if (complete) {
+                    subscriber.onComplete();
+                }
+            } catch (InterruptedException e) {
+                LOG.warn("Record publisher interrupted");
+            } catch (Throwable e) {
+                LOG.error("Record publisher failed, Exception: {}", e.getMessage());
+                subscriber.onError(e);
+            } finally {
+                consumer.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.aliyun.datahub.clientlibrary.consumer;
+
+import com.aliyun.datahub.client.model.RecordEntry;
+
+/**
+ * Same contract as java.util.concurrent.Flow.Subscriber, so that an adapter to Flow or Reactive Streams is trivial.
+ * Methods are called in sequence by the publisher thread
+ */
+public interface RecordSubscriber {
+    /**
+     * Called once before any other method
+     * @param subscription Request records or cancel through it.
+     */
+    void onSubscribe(RecordSubscription subscription);
+
+    /**
+     * Called for each record, never more than requested
+     */
+    void onNext(RecordEntry record);
+
+    /**
+     * Called once if reading failed, nothing is called afterwards
+     */
+    void onError(Throwable throwable);
+
+    /**
+     * Called once if the publisher is closed, nothing is called afterwards
+     */
+    void onComplete();
+}
@@ -0,0 +1,17 @@
+package com.aliyun.datahub.clientlibrary.consumer;
+
+/**
+ * Same contract as java.util.concurrent.Flow.Subscription, thread safe
+ */
+public interface RecordSubscription {
+    /**
+     * Add demand, records are read from the consumer only while there is demand
+     * @param n The count of records, must be positive.
+     */
+    void request(long n);
+
+    /**
+     * Stop delivering records and close the consumer
+     */
+    void cancel();
+}
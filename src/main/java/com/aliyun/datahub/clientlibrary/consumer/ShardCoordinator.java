@@ -47,7 +47,8 @@ public class ShardCoordinator {
         this.topicName = topicName;
         this.subId = subId;
 
-        this.clientManager = ClientManagerFactory.getClientManager(projectName, topicName, config.getDatahubConfig());
+        this.clientManager = ClientManagerFactory.getClientManager(projectName, topicName,
+                config.getDatahubConfig(), config.getHttpConfig());
         this.client = clientManager.getClient();
         this.heartbeat = new Heartbeat(client, projectName, topicName, subId);
         this.executor = new ThreadPoolExecutor(1, 1,
@@ -1,19 +1,18 @@
 package com.aliyun.datahub.clientlibrary.consumer;
 
 import com.aliyun.datahub.client.exception.DatahubClientException;
+import com.aliyun.datahub.client.exception.InvalidParameterException;
 import com.aliyun.datahub.client.model.RecordEntry;
 import com.aliyun.datahub.clientlibrary.common.ClientManager;
 import com.aliyun.datahub.clientlibrary.common.ClientManagerFactory;
-import com.aliyun.datahub.clientlibrary.common.Constants;
 import com.aliyun.datahub.clientlibrary.config.ConsumerConfig;
+import com.aliyun.datahub.clientlibrary.models.BlobBatch;
 import com.aliyun.datahub.clientlibrary.models.Offset;
+import com.aliyun.datahub.clientlibrary.models.ShardBatch;
+import com.aliyun.datahub.clientlibrary.models.TupleBatch;
 import com.aliyun.datahub.clientlibrary.models.TopicInfo;
 
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.SynchronousQueue;
-import java.util.concurrent.ThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -25,12 +24,13 @@ public class ShardGroupReader {
     private ConsumerConfig config;
     private ClientManager clientManager;
 
-    private ShardReaderPicker shardReaderPicker = new ShardReaderPicker();
     private final Map<String, ShardReader> shardReaderMap = new HashMap<>();
+    private final FetchNotifier fetchNotifier = new FetchNotifier();
+    private final ShardReaderPicker shardReaderPicker;
+    private final FetchMemory fetchMemory;
+    private final FetchScheduler executor;
 
     private final AtomicBoolean closed = new AtomicBoolean(false);
-    private final ExecutorService executor = new ThreadPoolExecutor(1, Constants.MAX_SHARD_READER_POOL_SIZE,
-            60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>());
 
     // only used to display in user agent
     private String subId;
@@ -43,7 +43,11 @@ public class ShardGroupReader {
      */
     public ShardGroupReader(String projectName, String topicName, ConsumerConfig config) {
         this.config = config;
-        clientManager = ClientManagerFactory.getClientManager(projectName, topicName, config.getDatahubConfig());
+        this.shardReaderPicker = ShardReaderPicker.create(config, fetchNotifier);
+        this.fetchMemory = new FetchMemory(config.getFetchBufferSize(), config.isDirectBlobBuffer());
+        this.executor = FetchScheduler.create(config);
+        clientManager = ClientManagerFactory.getClientManager(projectName, topicName,
+                config.getDatahubConfig(), config.getHttpConfig());
         this.topicInfo = getTopic(projectName, topicName);
     }
 
@@ -62,7 +66,12 @@ public class ShardGroupReader {
                 return null;
             }
 
-            RecordEntry record = shardReader.read();
+            RecordEntry record;
+            try {
+                record = shardReader.read();
+            } finally {
+                shardReaderPicker.update(shardReader);
+            }
             if (record != null) {
                 return record;
             }
@@ -70,6 +79,118 @@ public class ShardGroupReader {
         return null;
     }
 
+    /**
+     * Read records, drain the picked shard before moving to the next one
+     * @param maxRecords The max count of records to read.
+     * @return Records read, empty if not fetched
+     */
+    public List<RecordEntry> readBatch(int maxRecords) {
+        checkNotClosed();
+
+        List<RecordEntry> result = new ArrayList<>();
+        int maxRetry = shardReaderMap.size();
+        for (int retry = 0; retry < maxRetry && result.size() < maxRecords; ) {
+            ShardReader shardReader = shardReaderPicker.pick();
+
+            if (shardReader == null) {
+                break;
+            }
+
+            int count;
+            try {
+                count = shardReader.read(maxRecords - result.size(), result);
+            } finally {
+                shardReaderPicker.update(shardReader);
+            }
+            if (count == 0) {
+                ++retry;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Read records of tuple topic as columnar batches, one or more for a shard, if columnar read is enabled
+     * @param maxRecords The max count of records to read, exceeded only if the first batch is larger.
+     * @return Batches read, empty if not fetched
+     */
+    public List<TupleBatch> readTupleBatches(int maxRecords) {
+        return castBatches(readShardBatches(maxRecords), TupleBatch.class);
+    }
+
+    /**
+     * Read records of blob topic as batches sharing pooled buffers, if blob batch read is enabled.
+     * Release each batch once processed
+     * @param maxRecords The max count of records to read, exceeded only if the first batch is larger.
+     * @return Batches read, empty if not fetched
+     */
+    public List<BlobBatch> readBlobBatches(int maxRecords) {
+        return castBatches(readShardBatches(maxRecords), BlobBatch.class);
+    }
+
+    private List<ShardBatch> readShardBatches(int maxRecords) {
+        checkNotClosed();
+
+        List<ShardBatch> result = new ArrayList<>();
+        int total = 0;
+        int maxRetry = shardReaderMap.size();
+        for (int retry = 0; retry < maxRetry && total < maxRecords; ) {
+            ShardReader shardReader = shardReaderPicker.pick();
+
+            if (shardReader == null) {
+                break;
+            }
+
+            int count;
+            try {
+                count = shardReader.readBatches(maxRecords - total, result);
+            } finally {
+                shardReaderPicker.update(shardReader);
+            }
+            if (count == 0) {
+                ++retry;
+            }
+            total += count;
+        }
+        return result;
+    }
+
+    private static <T extends ShardBatch> List<T> castBatches(List<ShardBatch> batches, Class<T> clazz) {
+        List<T> result = new ArrayList<>(batches.size());
+        for (ShardBatch batch : batches) {
+            if (!clazz.isInstance(batch)) {
+                throw new InvalidParameterException("Records are not read as " + clazz.getSimpleName());
+            }
+            result.add(clazz.cast(batch));
+        }
+        return result;
+    }
+
+    /**
+     * Get before read, then pass to awaitFetched if nothing read, so that records fetched in between are not missed
+     * @return The version of fetch notification
+     */
+    public long getFetchVersion() {
+        return fetchNotifier.getVersion();
+    }
+
+    /**
+     * Wait until any shard reader fetched records, reached the end or failed
+     * @param fetchVersion The version got by getFetchVersion before read.
+     * @param timeoutMs The max time to wait.
+     * @return true if there is something new to read
+     */
+    public boolean awaitFetched(long fetchVersion, long timeoutMs) throws InterruptedException {
+        return fetchNotifier.await(fetchVersion, timeoutMs);
+    }
+
+    /**
+     * @return Estimated bytes of records fetched but not read
+     */
+    public long getBufferedSize() {
+        return fetchMemory.getUsed();
+    }
+
     /**
      * Create shard reader
      * @param offsetMap The offset map of shard to create reader
@@ -81,9 +202,14 @@ public class ShardGroupReader {
             if (shardReaderMap.containsKey(shardId) && !shardReaderMap.get(shardId).isClosed()) {
                 continue;
             }
-            ShardReader shardReader = new ShardReader(topicInfo, shardId, offsetMap.get(shardId), config, executor);
+            ShardReader shardReader = new ShardReader(topicInfo, shardId, offsetMap.get(shardId), config, executor,
+                    fetchNotifier, fetchMemory);
             shardReader.setSubId(subId);
-            shardReaderMap.put(shardId, shardReader);
+            ShardReader closedReader = shardReaderMap.put(shardId, shardReader);
+            if (closedReader != null) {
+                shardReaderPicker.remove(closedReader);
+            }
+            shardReaderPicker.add(shardReader);
         }
     }
 
@@ -99,6 +225,7 @@ public class ShardGroupReader {
             if (shardReader != null) {
                 shardReader.close();
                 shardReaderMap.remove(shardId);
+                shardReaderPicker.remove(shardReader);
             }
         }
     }
@@ -150,34 +277,4 @@ public class ShardGroupReader {
             throw e;
         }
     }
-
-    private class ShardReaderPicker {
-        private final Set<ShardReader> emptySet = new HashSet<>();
-
-        ShardReader pick() {
-            ShardReader result = findOldest();
-            if (result != null) {
-                if (result.frontRecordTime() == Long.MIN_VALUE) {
-                    emptySet.add(result);
-                }
-                if (emptySet.size() >= shardReaderMap.size() || result.frontRecordTime() != Long.MIN_VALUE) {
-                    emptySet.clear();
-                }
-            }
-            return result;
-        }
-
-        private ShardReader findOldest() {
-            ShardReader result = null;
-            for (ShardReader shardReader : shardReaderMap.values()) {
-                if (emptySet.contains(shardReader)) {
-                    continue;
-                }
-                if (result == null || shardReader.frontRecordTime() < result.frontRecordTime()) {
-                    result = shardReader;
-                }
-            }
-            return result;
-        }
-    }
 }
@@ -11,16 +11,22 @@ import com.aliyun.datahub.client.model.RecordType;
 import com.aliyun.datahub.clientlibrary.common.ClientManager;
 import com.aliyun.datahub.clientlibrary.common.ClientManagerFactory;
 import com.aliyun.datahub.clientlibrary.common.Constants;
+import com.aliyun.datahub.clientlibrary.common.RecordSizeEstimator;
 import com.aliyun.datahub.clientlibrary.config.ConsumerConfig;
 import com.aliyun.datahub.clientlibrary.exception.ExceptionRetryer;
 import com.aliyun.datahub.clientlibrary.models.Offset;
+import com.aliyun.datahub.clientlibrary.models.BlobBatch;
+import com.aliyun.datahub.clientlibrary.models.ShardBatch;
+import com.aliyun.datahub.clientlibrary.models.TupleBatch;
 import com.aliyun.datahub.clientlibrary.models.TopicInfo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class ShardReader {
     private static final Logger LOG = LoggerFactory.getLogger(ShardReader.class);
@@ -31,6 +37,10 @@ public class ShardReader {
     private String shardId;
     private Offset offset;
     private ExecutorService executor;
+    private FetchNotifier notifier;
+    private FetchMemory fetchMemory;
+    private RecordSizeEstimator estimator;
+    private FetchSizeController fetchSizeController;
 
     private volatile String cursor;
     private volatile Future currentTask;
@@ -38,11 +48,30 @@ public class ShardReader {
     private boolean readEnd = false;
     private volatile DatahubClientException exception;
     private volatile long endSequence = Constants.DEFAULT_LAST_SEQUENCE;
-    private final ConcurrentLinkedQueue<RecordEntry> fetchedQueue = new ConcurrentLinkedQueue<>();
+    private volatile long lastEmptyFetchTime = 0;
+    // offered by the fetch task and polled by the reader, fetch tasks of a shard run one at a time
+    // and the consumer is not thread safe, so each side has one thread at a time
+    private SpscRingBuffer<RecordEntry> fetchedQueue;
+    // used instead of fetchedQueue in columnar or blob batch mode
+    private SpscRingBuffer<ShardBatch> fetchedBatches;
+    // a batch is queued by the fetch task or drained by close under it, so no blob buffer is left behind
+    private final Object batchCloseLock = new Object();
+    // records of fetchedBatches, the former written by fetch task only and the latter by reader only
+    private volatile long batchedRecordsIn = 0;
+    private volatile long batchedRecordsOut = 0;
+    // estimated bytes of each response queued in fetchedQueue, in queue order, offered before its records
+    private final ConcurrentLinkedQueue<ResponseBytes> queuedResponses = new ConcurrentLinkedQueue<>();
+    // reader side, the response the next record read belongs to
+    private ResponseBytes readingResponse;
+    // records not fitting fetchedQueue, only possible if the interceptor adds records, queued by the next fetch task
+    // or by the reader while no fetch task runs
+    private List<RecordEntry> overflow = Collections.emptyList();
+    private volatile int overflowCount = 0;
+    private boolean columnar;
+    private boolean blobBatch;
     private final AtomicBoolean closed = new AtomicBoolean(false);
-
-    // may not match the size of fetchedQueue in real-time, just used to limit fetchIfNeeded frequency
-    private final AtomicInteger queueSize = new AtomicInteger(0);
+    // estimated bytes of fetchedQueue, also added to fetchMemory
+    private final AtomicLong bufferedBytes = new AtomicLong(0);
 
     // only used to display in user agent
     private String subId;
@@ -52,14 +81,40 @@ public class ShardReader {
                 Offset offset,
                 ConsumerConfig config,
                 ExecutorService executor) {
+        this(topicInfo, shardId, offset, config, executor, new FetchNotifier(),
+                new FetchMemory(config.getFetchBufferSize(), config.isDirectBlobBuffer()));
+    }
+
+    ShardReader(TopicInfo topicInfo,
+                String shardId,
+                Offset offset,
+                ConsumerConfig config,
+                ExecutorService executor,
+                FetchNotifier notifier,
+                FetchMemory fetchMemory) {
         this.topicInfo = topicInfo;
         this.shardId = shardId;
         this.offset = offset;
         this.config = config;
         this.executor = executor;
+        this.notifier = notifier;
+        this.fetchMemory = fetchMemory;
+        this.estimator = new RecordSizeEstimator(topicInfo);
+        this.columnar = config.isColumnarRead() && RecordType.TUPLE.equals(topicInfo.getRecordType());
+        this.blobBatch = config.isBlobBatchRead() && RecordType.BLOB.equals(topicInfo.getRecordType());
+        this.fetchSizeController = new FetchSizeController(config.getFetchSize(), Constants.MIN_FETCH_SIZE,
+                Constants.MAX_ADAPTIVE_FETCH_SIZE);
+        // room for twice the fetch size ahead plus the last response overshooting it
+        int maxFetchSize = config.isAdaptiveFetchSize() ? fetchSizeController.getMaxSize() : config.getFetchSize();
+        int capacity = maxFetchSize * 2 + Constants.MAX_FETCH_SIZE;
+        if (isBatched()) {
+            this.fetchedBatches = new SpscRingBuffer<>(capacity);
+        } else {
+            this.fetchedQueue = new SpscRingBuffer<>(capacity);
+        }
         this.currentTask = null;
         this.clientManager = ClientManagerFactory.getClientManager(topicInfo.getProjectName(),
-                topicInfo.getTopicName(), config.getDatahubConfig());
+                topicInfo.getTopicName(), config.getDatahubConfig(), config.getHttpConfig());
     }
 
     String getShardId() {
@@ -71,6 +126,7 @@ public class ShardReader {
     }
 
     RecordEntry read() {
+        checkNotBatched();
         if (exception != null) {
             DatahubClientException ex = exception;
             exception = null;
@@ -82,23 +138,113 @@ public class ShardReader {
         }
 
         if (fetchEnd) {
-            readEnd = fetchedQueue.isEmpty();
+            readEnd = isQueueEmpty();
         }
 
         fetchIfNeeded();
 
-        RecordEntry result = fetchedQueue.peek();
+        RecordEntry result = fetchedQueue.poll();
         if (result == null) {
             return null;
         }
-        fetchedQueue.poll();
-        queueSize.decrementAndGet();
+        releaseRead(1);
 
         fetchIfNeeded();
 
         return result;
     }
 
+    /**
+     * Read fetched records
+     * @param maxRecords The max count of records to read.
+     * @param out Records read are appended to it.
+     * @return The count of records read
+     */
+    int read(int maxRecords, List<RecordEntry> out) {
+        checkNotBatched();
+        if (exception != null) {
+            DatahubClientException ex = exception;
+            exception = null;
+            throw ex;
+        }
+
+        if (closed.get() || readEnd) {
+            return 0;
+        }
+
+        if (fetchEnd) {
+            readEnd = isQueueEmpty();
+        }
+
+        fetchIfNeeded();
+
+        int count = fetchedQueue.drainTo(out, maxRecords);
+        if (count > 0) {
+            releaseRead(count);
+            fetchIfNeeded();
+        }
+        return count;
+    }
+
+    /**
+     * Read fetched records in columnar or blob batch mode, whole batches as fetched
+     * @param maxRecords The max count of records to read, exceeded only if out is empty and the first batch is larger.
+     * @param out Batches read are appended to it.
+     * @return The count of records read
+     */
+    int readBatches(int maxRecords, List<ShardBatch> out) {
+        if (!isBatched()) {
+            throw new InvalidParameterException("Batch read is not enabled for the record type of topic");
+        }
+        if (exception != null) {
+            DatahubClientException ex = exception;
+            exception = null;
+            throw ex;
+        }
+
+        if (closed.get() || readEnd) {
+            return 0;
+        }
+
+        if (fetchEnd) {
+            readEnd = isQueueEmpty();
+        }
+
+        fetchIfNeeded();
+
+        int count = 0;
+        long bytes = 0;
+        ShardBatch batch;
+        while ((batch = fetchedBatches.peek()) != null && (out.isEmpty() || count + batch.size() <= maxRecords)) {
+            fetchedBatches.poll();
+            out.add(batch);
+            bytes += batch.getByteSize();
+            count += batch.size();
+        }
+        if (count > 0) {
+            batchedRecordsOut += count;
+            releaseBytes(bytes);
+            fetchIfNeeded();
+        }
+        return count;
+    }
+
+    /**
+     * @return true if read returns records, end of shard or exception
+     */
+    boolean hasSomethingToRead() {
+        return exception != null || !isQueueEmpty() || (fetchEnd && !readEnd);
+    }
+
+    /**
+     * Start fetching without reading, for the shard reader idle
+     */
+    void prefetch() {
+        if (!readEnd) {
+            fetchIfNeeded();
+        }
+    }
+
     boolean isReadEnd() {
         return readEnd;
     }
@@ -108,10 +254,12 @@ public class ShardReader {
     }
 
     long frontRecordTime() {
-        if (fetchedQueue.isEmpty() || fetchedQueue.peek() == null) {
-            return Long.MIN_VALUE;
+        if (isBatched()) {
+            ShardBatch batch = fetchedBatches.peek();
+            return batch == null ? Long.MIN_VALUE : batch.getSystemTime(0);
         }
-        return fetchedQueue.peek().getSystemTime();
+        RecordEntry record = fetchedQueue.peek();
+        return record == null ? Long.MIN_VALUE : record.getSystemTime();
     }
 
     void close() {
@@ -122,32 +270,210 @@ public class ShardReader {
             if (currentTask != null && !currentTask.isDone()) {
                 currentTask.cancel(true);
             }
+            releaseAllBytes();
+            releaseQueuedBatches();
         }
     }
 
+    int getFetchSize() {
+        return fetchSizeController.getFetchSize();
+    }
+
+    long getBufferedBytes() {
+        return bufferedBytes.get();
+    }
+
     public void setSubId(String subId) {
         this.subId = subId;
     }
 
     private void fetchIfNeeded() {
-        if (closed.get() || fetchEnd || isTaskRunning()) {
+        if (closed.get() || isTaskRunning()) {
+            return;
+        }
+
+        // no fetch task running and only the reader submits one, so the reader is the producer for now.
+        // the overflow must not wait for a fetch, none may come after the shard end or with the queue full
+        if (!isBatched()) {
+            queueOverflow();
+        }
+
+        if (fetchEnd) {
+            return;
+        }
+
+        if (System.currentTimeMillis() - lastEmptyFetchTime < Constants.EMPTY_FETCH_INTERVAL_MS) {
             return;
         }
 
         // fetch more records with less queue size
-        int totalFetchSize = config.getFetchSize() * 2 - queueSize.get();
-        if (totalFetchSize <= 0) {
+        int fetchSize = fetchSizeController.getFetchSize();
+        int queued = getQueuedCount();
+        int totalFetchSize = fetchSize * 2 - queued;
+        if (totalFetchSize <= 0 || !hasBufferSpace()) {
             return;
         }
 
-        FetchTask task = new FetchTask(totalFetchSize);
+        FetchTask task = new FetchTask(totalFetchSize, queued < fetchSize, (double) queued / fetchSize);
         try {
             currentTask = executor.submit(task);
         } catch (RejectedExecutionException e) {
-            LOG.warn("Thread pool for shard reader is full, Exception: {}", e.getMessage());
+            LOG.warn("Submit fetch task failed, Project: {}, Topic: {}, ShardId: {}, Exception: {}",
+                    topicInfo.getProjectName(), topicInfo.getTopicName(), shardId, e.getMessage());
+        }
+    }
+
+    /**
+     * Checked before each request, so a shard with nothing buffered always fetches one response
+     */
+    private boolean hasBufferSpace() {
+        return bufferedBytes.get() < config.getShardFetchBufferSize() && fetchMemory.isAvailable();
+    }
+
+    private void releaseBytes(long bytes) {
+        bufferedBytes.addAndGet(-bytes);
+        fetchMemory.release(bytes);
+    }
+
+    /**
+     * Called by close and by a fetch task finding the reader closed, each releases only the bytes it swapped out
+     */
+    private void releaseAllBytes() {
+        fetchMemory.release(bufferedBytes.getAndSet(0));
+    }
+
+    /**
+     * Reader side, release the bytes counted at enqueue for records read, in proportion within a response
+     * so that records are not estimated again
+     */
+    private void releaseRead(int count) {
+        long bytes = 0;
+        while (count > 0) {
+            if (readingResponse == null || readingResponse.count == 0) {
+                readingResponse = queuedResponses.poll();
+                if (readingResponse == null) {
+                    break;
+                }
+            }
+            int released = Math.min(count, readingResponse.count);
+            long part = released == readingResponse.count ? readingResponse.bytes
+                    : readingResponse.bytes * released / readingResponse.count;
+            readingResponse.count -= released;
+            readingResponse.bytes -= part;
+            bytes += part;
+            count -= released;
+        }
+        releaseBytes(bytes);
+    }
+
+    /**
+     * Give back the pooled buffers of batches not read yet, after closed
+     */
+    private void releaseQueuedBatches() {
+        if (fetchedBatches == null) {
+            return;
+        }
+        synchronized (batchCloseLock) {
+            ShardBatch batch;
+            while ((batch = fetchedBatches.poll()) != null) {
+                releaseBatch(batch);
+            }
+        }
+    }
+
+    private static void releaseBatch(ShardBatch batch) {
+        if (batch instanceof BlobBatch) {
+            ((BlobBatch) batch).release();
+        }
+    }
+
+    /**
+     * Reader side
+     */
+    private boolean isQueueEmpty() {
+        return (isBatched() ? fetchedBatches.isEmpty() : fetchedQueue.isEmpty()) && overflowCount == 0;
+    }
+
+    private int getQueuedCount() {
+        int queued = isBatched() ? (int) (batchedRecordsIn - batchedRecordsOut) : fetchedQueue.size();
+        return queued + overflowCount;
+    }
+
+    /**
+     * Fetch task side, a response of the size fits in the queue
+     */
+    private boolean hasQueueSpace(int fetchSize) {
+        if (isBatched()) {
+            return fetchedBatches.remainingCapacity() > 0;
+        }
+        return overflowCount == 0 && fetchedQueue.remainingCapacity() >= fetchSize;
+    }
+
+    private boolean isBatched() {
+        return columnar || blobBatch;
+    }
+
+    private void checkNotBatched() {
+        if (isBatched()) {
+            throw new InvalidParameterException("Batch read is enabled, read batches instead");
+        }
+    }
+
+    /**
+     * Queue records, or a batch of them in columnar or blob batch mode so that records are garbage right
+     * after fetched
+     */
+    private void enqueue(List<RecordEntry> records) {
+        long bytes = 0;
+        if (records.isEmpty()) {
+            return;
+        }
+        if (isBatched()) {
+            ShardBatch batch = columnar ? TupleBatch.of(shardId, topicInfo.getRecordSchema(), records)
+                    : BlobBatch.of(shardId, records, fetchMemory.getBufferPool());
+            synchronized (batchCloseLock) {
+                if (closed.get()) {
+                    releaseBatch(batch);
+                    return;
+                }
+                bytes = batch.getByteSize();
+                addBytes(bytes);
+                // counted before published so that the reader never reads more than counted
+                batchedRecordsIn += batch.size();
+                fetchedBatches.offer(batch);
+            }
+            return;
+        }
+        for (RecordEntry record : records) {
+            bytes += estimator.estimate(record);
+        }
+        queuedResponses.offer(new ResponseBytes(records.size(), bytes));
+        addBytes(bytes);
+        overflow = records;
+        overflowCount = records.size();
+        queueOverflow();
+    }
+
+    /**
+     * Producer side, the fetch task or the reader while no fetch task runs, queue the records left by the last
+     * response as many as fit
+     */
+    private void queueOverflow() {
+        if (overflowCount == 0) {
+            return;
+        }
+        int queued = fetchedQueue.offer(overflow, overflow.size() - overflowCount);
+        overflowCount -= queued;
+        if (overflowCount == 0) {
+            overflow = Collections.emptyList();
         }
     }
 
+    private void addBytes(long bytes) {
+        bufferedBytes.addAndGet(bytes);
+        fetchMemory.add(bytes);
+    }
+
     private String seekCursor(final Offset offset) {
         if (offset.isInvalid()) {
             throw new InvalidParameterException("Sequence and system time are all invalid");
@@ -202,12 +528,18 @@ public class ShardReader {
         return currentTask != null;
     }
 
-    private class FetchTask implements Runnable {
+    private class FetchTask implements Runnable, FetchScheduler.Prioritized {
         private int totalFetchSize;
         private int fetchSizeOnce;
+        // the reader had read most records before this task
+        private boolean draining;
+        // the ratio of records buffered to the fetch size
+        private double bufferFill;
 
-        FetchTask(int totalFetchSize) {
+        FetchTask(int totalFetchSize, boolean draining, double bufferFill) {
             this.totalFetchSize = totalFetchSize;
+            this.draining = draining;
+            this.bufferFill = bufferFill;
             this.fetchSizeOnce = Math.max(Constants.MIN_FETCH_SIZE, Math.min(totalFetchSize, Constants.MAX_FETCH_SIZE));
         }
 
@@ -240,19 +572,43 @@ public class ShardReader {
                     cursor = seekCursor(offset);
                 }
 
+                if (!isBatched()) {
+                    queueOverflow();
+                }
+
                 int fetchedCount = 0;
-                for (int i = 0; i <= Constants.MAX_FETCH_TIMES && fetchedCount < totalFetchSize && !closed.get(); ++i) {
+                boolean emptyResponse = false;
+                for (int i = 0; i <= Constants.MAX_FETCH_TIMES && fetchedCount < totalFetchSize && !closed.get()
+                        && hasBufferSpace() && hasQueueSpace(fetchSizeOnce); ++i) {
+                    long startTime = System.currentTimeMillis();
                     GetRecordsResult getRecordsResult = fetchRecords();
+                    if (config.isAdaptiveFetchSize()) {
+                        fetchSizeController.update(fetchSizeOnce, getRecordsResult.getRecordCount(),
+                                System.currentTimeMillis() - startTime, draining);
+                    }
                     if (getRecordsResult.getRecordCount() == 0) {
+                        emptyResponse = true;
                         break;
                     }
 
                     RecordEntry lastRecord = getRecordsResult.getRecords().get(getRecordsResult.getRecords().size() - 1);
                     fetchedCount += getRecordsResult.getRecordCount();
-                    queueSize.addAndGet(getRecordsResult.getRecordCount());
-                    fetchedQueue.addAll(config.getInterceptor().afterRead(getRecordsResult.getRecords()));
+                    List<RecordEntry> records = config.getInterceptor().afterRead(getRecordsResult.getRecords());
+                    enqueue(records);
+                    if (closed.get()) {
+                        // closed while fetching, release what close missed, the queue is dropped with the reader
+                        releaseAllBytes();
+                        break;
+                    }
                     cursor = getRecordsResult.getNextCursor();
                     endSequence = lastRecord.getSequence();
+                    notifier.signal(ShardReader.this);
+                }
+                // no request for lack of buffer or queue space is not an empty fetch, retry once space is freed
+                if (emptyResponse && fetchedCount == 0) {
+                    lastEmptyFetchTime = System.currentTimeMillis();
+                } else if (fetchedCount > 0) {
+                    lastEmptyFetchTime = 0;
                 }
             } catch (InvalidParameterException e) {
                 LOG.warn("Cursor is expired, try seek by offset, Project: {}, Topic: {}, ShardId: {}, Exception: {}",
@@ -266,6 +622,11 @@ public class ShardReader {
             }
         }
 
+        @Override
+        public double getPriority() {
+            return bufferFill;
+        }
+
         @Override
         public void run() {
             try {
@@ -275,9 +636,21 @@ public class ShardReader {
                 LOG.warn("Fetch end of shard, Project: {}, Topic: {}, ShardId: {}, Exception: {}",
                         topicInfo.getProjectName(), topicInfo.getTopicName(), shardId, e.getMessage());
                 fetchEnd = true;
+                notifier.signal(ShardReader.this);
             } catch (DatahubClientException e) {
                 exception = e;
+                notifier.signal(ShardReader.this);
             }
         }
     }
+
+    private static class ResponseBytes {
+        private int count;
+        private long bytes;
+
+        ResponseBytes(int count, long bytes) {
+            this.count = count;
+            this.bytes = bytes;
+        }
+    }
 }
@@ -0,0 +1,129 @@
+package com.aliyun.datahub.clientlibrary.consumer;
+
+import com.aliyun.datahub.clientlibrary.common.Constants;
+import com.aliyun.datahub.clientlibrary.config.ConsumerConfig;
+import com.aliyun.datahub.clientlibrary.config.ReadPolicy;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * A shard reader is idle, ready or picked. Idle ones have nothing to read and wait for their fetch
+ * task to signal, ready ones are chosen by the read policy. A picked shard reader must be given back
+ * by update after read. Not thread safe
+ */
+abstract class ShardReaderPicker {
+    private final FetchNotifier notifier;
+    private final Set<ShardReader> shardReaders = new HashSet<>();
+    private final Set<ShardReader> idleSet = new LinkedHashSet<>();
+    private long lastPrefetchTime = 0;
+
+    ShardReaderPicker(FetchNotifier notifier) {
+        this.notifier = notifier;
+    }
+
+    static ShardReaderPicker create(ConsumerConfig config, FetchNotifier notifier) {
+        ReadPolicy policy = config.getReadPolicy();
+        if (policy == ReadPolicy.WEIGHTED_ROUND_ROBIN) {
+            return new WeightedRoundRobinPicker(notifier, config.getShardWeights());
+        } else if (policy == ReadPolicy.LAG_PROPORTIONAL) {
+            return new LagProportionalPicker(notifier);
+        } else if (policy == ReadPolicy.FAIR) {
+            return new FairPicker(notifier);
+        }
+        return new OldestFirstPicker(notifier);
+    }
+
+    void add(ShardReader shardReader) {
+        if (!shardReaders.add(shardReader)) {
+            return;
+        }
+        idleSet.add(shardReader);
+        shardReader.prefetch();
+    }
+
+    void remove(ShardReader shardReader) {
+        if (shardReaders.remove(shardReader)) {
+            idleSet.remove(shardReader);
+            removeReady(shardReader);
+        }
+    }
+
+    /**
+     * @return The shard reader to read, null if none has something to read
+     */
+    ShardReader pick() {
+        collectReady();
+        prefetchIdleIfNeeded();
+        return pollReady();
+    }
+
+    /**
+     * Give back the shard reader picked
+     */
+    void update(ShardReader shardReader) {
+        if (!shardReaders.contains(shardReader)) {
+            return;
+        }
+        if (shardReader.isReadEnd() || shardReader.isClosed()) {
+            remove(shardReader);
+        } else if (shardReader.hasSomethingToRead()) {
+            offerReady(shardReader);
+        } else {
+            idleSet.add(shardReader);
+        }
+    }
+
+    int size() {
+        return shardReaders.size();
+    }
+
+    /**
+     * The shard reader has something to read
+     */
+    protected abstract void offerReady(ShardReader shardReader);
+
+    /**
+     * Take the next ready shard reader to read
+     */
+    protected abstract ShardReader pollReady();
+
+    /**
+     * Called when a shard reader removed, it may be not ready
+     */
+    protected abstract void removeReady(ShardReader shardReader);
+
+    private void collectReady() {
+        ShardReader shardReader;
+        while ((shardReader = notifier.pollReady()) != null) {
+            if (idleSet.contains(shardReader) && shardReader.hasSomethingToRead()) {
+                idleSet.remove(shardReader);
+                offerReady(shardReader);
+            }
+        }
+    }
+
+    /**
+     * Idle shards are fetched only when read, so start their fetch once per empty fetch interval
+     */
+    private void prefetchIdleIfNeeded() {
+        long now = System.currentTimeMillis();
+        if (now - lastPrefetchTime < Constants.EMPTY_FETCH_INTERVAL_MS) {
+            return;
+        }
+        lastPrefetchTime = now;
+
+        Iterator<ShardReader> iterator = idleSet.iterator();
+        while (iterator.hasNext()) {
+            ShardReader shardReader = iterator.next();
+            if (shardReader.hasSomethingToRead()) {
+                iterator.remove();
+                offerReady(shardReader);
+            } else {
+                shardReader.prefetch();
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.aliyun.datahub.clientlibrary.consumer;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded array queue for one producer and one consumer at a time, the producer publishes a batch of
+ * elements with one ordered write. Head is only written by the consumer and tail only by the producer,
+ * the consumer caches tail to read it only when the cached one runs out
+ */
+class SpscRingBuffer<E> {
+    private final Object[] buffer;
+    private final int mask;
+    // next index to poll, written by consumer only
+    private final AtomicLong head = new AtomicLong(0);
+    // next index to offer, written by producer only
+    private final AtomicLong tail = new AtomicLong(0);
+    // consumer side cache of tail
+    private long tailCache = 0;
+
+    /**
+     * @param capacity Min capacity, rounded up to a power of 2.
+     */
+    SpscRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(capacity, 2) - 1) << 1;
+        this.buffer = new Object[size];
+        this.mask = size - 1;
+    }
+
+    int capacity() {
+        return buffer.length;
+    }
+
+    /**
+     * Exact on the producer or consumer side, a snapshot from other threads
+     */
+    int size() {
+        long h = head.get();
+        return (int) Math.min(tail.get() - h, buffer.length);
+    }
+
+    boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+
+    /**
+     * Producer side, exact as the consumer only frees slots
+     */
+    int remainingCapacity() {
+        return buffer.length - (int) (tail.get() - head.get());
+    }
+
+    /**
+     * Producer side, offer elements from the list in order as many as fit
+     * @param elements The elements to offer.
+     * @param from The index of the first element to offer.
+     * @return The count of elements offered
+     */
+    int offer(List<? extends E> elements, int from) {
+        int count = Math.min(elements.size() - from, remainingCapacity());
+        if (count <= 0) {
+            return 0;
+        }
+        long t = tail.get();
+        for (int i = 0; i < count; ++i) {
+            buffer[(int) (t + i) & mask] = elements.get(from + i);
+        }
+        tail.lazySet(t + count);
+        return count;
+    }
+
+    /**
+     * Producer side
+     * @return false if full
+     */
+    boolean offer(E element) {
+        if (remainingCapacity() == 0) {
+            return false;
+        }
+        long t = tail.get();
+        buffer[(int) t & mask] = element;
+        tail.lazySet(t + 1);
+        return true;
+    }
+
+    /**
+     * Consumer side
+     * @return The head element, null if empty
+     */
+    @SuppressWarnings("unchecked")
+    E peek() {
+        long h = head.get();
+        if (h == tailCache) {
+            tailCache = tail.get();
+            if (h == tailCache) {
+                return null;
+            }
+        }
+        return (E) buffer[(int) h & mask];
+    }
+
+    /**
+     * Consumer side
+     * @return The head element removed, null if empty
+     */
+    E poll() {
+        E element = peek();
+        if (element != null) {
+            long h = head.get();
+            buffer[(int) h & mask] = null;
+            head.lazySet(h + 1);
+        }
+        return element;
+    }
+
+    /**
+     * Consumer side, remove elements in order and release their slots with one ordered write
+     * @param out Elements removed are appended to it.
+     * @param maxCount The max count of elements to remove.
+     * @return The count of elements removed
+     */
+    @SuppressWarnings("unchecked")
+    int drainTo(List<? super E> out, int maxCount) {
+        long h = head.get();
+        if (tailCache - h < maxCount) {
+            tailCache = tail.get();
+        }
+        int count = (int) Math.min(tailCache - h, maxCount);
+        if (count <= 0) {
+            return 0;
+        }
+        for (int i = 0; i < count; ++i) {
+            int index = (int) (h + i) & mask;
+            out.add((E) buffer[index]);
+            buffer[index] = null;
+        }
+        head.lazySet(h + count);
+        return count;
+    }
+}
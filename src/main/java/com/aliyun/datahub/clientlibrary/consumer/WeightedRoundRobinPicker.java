@@ -0,0 +1,53 @@
+package com.aliyun.datahub.clientlibrary.consumer;
+
+import java.util.Map;
+
+/**
+ * Like fair picking, but the shard at the head keeps its place for as many reads as its weight
+ */
+class WeightedRoundRobinPicker extends FairPicker {
+    private final Map<String, Integer> shardWeights;
+    private ShardReader current;
+    private int turnsLeft = 0;
+
+    WeightedRoundRobinPicker(FetchNotifier notifier, Map<String, Integer> shardWeights) {
+        super(notifier);
+        this.shardWeights = shardWeights;
+    }
+
+    @Override
+    protected void offerReady(ShardReader shardReader) {
+        if (shardReader == current && turnsLeft > 0) {
+            readyQueue.offerFirst(shardReader);
+        } else {
+            readyQueue.offerLast(shardReader);
+        }
+    }
+
+    @Override
+    protected ShardReader pollReady() {
+        ShardReader shardReader = readyQueue.pollFirst();
+        if (shardReader == null) {
+            return null;
+        }
+        if (shardReader != current) {
+            current = shardReader;
+            turnsLeft = getWeight(shardReader.getShardId());
+        }
+        --turnsLeft;
+        return shardReader;
+    }
+
+    @Override
+    protected void removeReady(ShardReader shardReader) {
+        super.removeReady(shardReader);
+        if (shardReader == current) {
+            current = null;
+        }
+    }
+
+    private int getWeight(String shardId) {
+        Integer weight = shardWeights.get(shardId);
+        return weight == null ? 1 : Math.max(weight, 1);
+    }
+}
@@ -1,6 +1,8 @@
 package com.aliyun.datahub.clientlibrary.exception;
 
 import com.aliyun.datahub.client.exception.*;
+import com.aliyun.datahub.clientlibrary.common.Backoff;
+import com.aliyun.datahub.clientlibrary.common.Constants;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -23,7 +25,16 @@ public abstract class ExceptionRetryer<T> {
 
     protected abstract void failLog(String message);
 
+    /**
+     * Run and retry with jittered exponential backoff
+     * @param retryTimes The max retry times.
+     * @param intervalMs The max interval between retries.
+     */
     public final T run(int retryTimes, long intervalMs) {
+        return run(retryTimes, new Backoff(Math.min(Constants.RETRY_BASE_INTERVAL_MS, intervalMs), intervalMs));
+    }
+
+    public final T run(int retryTimes, Backoff backoff) {
         for (int i = 0; i <= retryTimes; ++i) {
             try {
                 return func();
@@ -38,13 +49,7 @@ public abstract class ExceptionRetryer<T> {
 
                 LOG.warn("Request failed, sleep and retry, Exception: {}", e.getMessage());
 
-                if (intervalMs > 0) {
-                    try {
-                        Thread.sleep(intervalMs);
-                    } catch (InterruptedException e1) {
-                        LOG.warn(e.getMessage());
-                    }
-                }
+                backoff.sleep(i);
             }
         }
 
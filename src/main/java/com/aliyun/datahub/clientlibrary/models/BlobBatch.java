@@ -0,0 +1,101 @@
+package com.aliyun.datahub.clientlibrary.models;
+
+import com.aliyun.datahub.client.exception.InvalidParameterException;
+import com.aliyun.datahub.client.model.BlobRecordData;
+import com.aliyun.datahub.client.model.RecordEntry;
+import com.aliyun.datahub.clientlibrary.common.BufferPool;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Records of a blob topic from one shard with data packed in one pooled buffer, each record is a slice of it.
+ * Attributes are not kept. Release the batch once processed, slices must not be used afterwards
+ */
+public class BlobBatch extends ShardBatch {
+    private final BufferPool pool;
+    private final ByteBuffer buffer;
+    // data of row i is buffer[offsets[i], offsets[i + 1])
+    private final int[] offsets;
+    private final AtomicBoolean released = new AtomicBoolean(false);
+
+    private BlobBatch(String shardId, int size, BufferPool pool, ByteBuffer buffer) {
+        super(shardId, size);
+        this.pool = pool;
+        this.buffer = buffer;
+        this.offsets = new int[size + 1];
+    }
+
+    /**
+     * @param shardId The shard of records.
+     * @param records Records of the shard in order.
+     * @param pool The pool to take the buffer from.
+     * @return The batch
+     */
+    public static BlobBatch of(String shardId, List<RecordEntry> records, BufferPool pool) {
+        int size = records.size();
+        int total = 0;
+        for (RecordEntry record : records) {
+            byte[] data = ((BlobRecordData) record.getRecordData()).getData();
+            total += data == null ? 0 : data.length;
+        }
+
+        BlobBatch batch = new BlobBatch(shardId, size, pool, pool.acquire(total));
+        for (int i = 0; i < size; ++i) {
+            RecordEntry record = records.get(i);
+            batch.sequences[i] = record.getSequence();
+            batch.systemTimes[i] = record.getSystemTime();
+            batch.offsets[i] = batch.buffer.position();
+            byte[] data = ((BlobRecordData) record.getRecordData()).getData();
+            if (data != null) {
+                batch.buffer.put(data);
+            }
+        }
+        batch.offsets[size] = batch.buffer.position();
+        batch.buffer.flip();
+        // the whole pooled buffer is held until released, not only the data in it
+        batch.byteSize += batch.buffer.capacity() + (size + 1) * 4L;
+        return batch;
+    }
+
+    /**
+     * @return A read only view of the batch buffer with position and limit around the data of the row
+     */
+    public ByteBuffer getData(int row) {
+        ByteBuffer data = getBuffer();
+        data.limit(offsets[row + 1]);
+        data.position(offsets[row]);
+        return data;
+    }
+
+    public int getDataSize(int row) {
+        return offsets[row + 1] - offsets[row];
+    }
+
+    /**
+     * @return A read only view of data of all rows, sliced by getOffsets
+     */
+    public ByteBuffer getBuffer() {
+        if (released.get()) {
+            throw new InvalidParameterException("This blob batch has already been released");
+        }
+        return buffer.asReadOnlyBuffer();
+    }
+
+    /**
+     * @return Offsets of rows in the buffer, the data of row i ends at offset i + 1
+     */
+    public int[] getOffsets() {
+        return offsets;
+    }
+
+    /**
+     * Give back the buffer for reuse
+     */
+    public void release() {
+        if (released.compareAndSet(false, true)) {
+            pool.release(buffer);
+        }
+    }
+}
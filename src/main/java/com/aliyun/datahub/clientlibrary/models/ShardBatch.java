@@ -0,0 +1,46 @@
+package com.aliyun.datahub.clientlibrary.models;
+
+/**
+ * Records of one shard in order, kept by batch as fetched instead of one RecordEntry for each
+ */
+public abstract class ShardBatch {
+    private final String shardId;
+    protected final int size;
+    protected final long[] sequences;
+    protected final long[] systemTimes;
+    protected long byteSize;
+
+    protected ShardBatch(String shardId, int size) {
+        this.shardId = shardId;
+        this.size = size;
+        this.sequences = new long[size];
+        this.systemTimes = new long[size];
+        this.byteSize = size * 16L;
+    }
+
+    public String getShardId() {
+        return shardId;
+    }
+
+    /**
+     * @return The count of rows
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return Bytes taken by the batch, roughly
+     */
+    public long getByteSize() {
+        return byteSize;
+    }
+
+    public long getSequence(int row) {
+        return sequences[row];
+    }
+
+    public long getSystemTime(int row) {
+        return systemTimes[row];
+    }
+}
@@ -11,16 +11,26 @@ public class ShardMeta {
     private Map<String, String> addressMap = new HashMap<>();
     private boolean finished = true;
 
+    // hash ranges of active shards, sorted by begin hash key
+    private String[] beginHashKeys;
+    private String[] endHashKeys;
+    private String[] rangeShardIds;
+
     public ShardMeta(ListShardResult listShardResult) {
+        List<ShardEntry> activeShards = new ArrayList<>();
         for (ShardEntry shardEntry : listShardResult.getShards()) {
             if (ShardState.ACTIVE.equals(shardEntry.getState())) {
                 activeShardIds.add(shardEntry.getShardId());
+                if (shardEntry.getBeginHashKey() != null && shardEntry.getEndHashKey() != null) {
+                    activeShards.add(shardEntry);
+                }
             } else if (ShardState.OPENING.equals(shardEntry.getState()) ||
                     ShardState.CLOSING.equals(shardEntry.getState())) {
                 finished = false;
             }
             addressMap.put(shardEntry.getShardId(), shardEntry.getAddress());
         }
+        buildHashRangeIndex(activeShards);
     }
 
     public Set<String> getActiveShardIds() {
@@ -34,4 +44,49 @@ public class ShardMeta {
     public boolean isFinished() {
         return finished;
     }
+
+    /**
+     * Find the active shard whose hash range contains the hash key
+     * @param hashKey The 128 bit hash key in 32 hex characters.
+     * @return The shard id, or null if no active shard owns the key
+     */
+    public String findShardId(String hashKey) {
+        int low = 0;
+        int high = beginHashKeys.length - 1;
+        int found = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (beginHashKeys[mid].compareTo(hashKey) <= 0) {
+                found = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+
+        if (found < 0 || endHashKeys[found].compareTo(hashKey) < 0) {
+            return null;
+        }
+        return rangeShardIds[found];
+    }
+
+    private void buildHashRangeIndex(List<ShardEntry> activeShards) {
+        Collections.sort(activeShards, new Comparator<ShardEntry>() {
+            @Override
+            public int compare(ShardEntry o1, ShardEntry o2) {
+                return o1.getBeginHashKey().toUpperCase().compareTo(o2.getBeginHashKey().toUpperCase());
+            }
+        });
+
+        int size = activeShards.size();
+        beginHashKeys = new String[size];
+        endHashKeys = new String[size];
+        rangeShardIds = new String[size];
+        for (int i = 0; i < size; ++i) {
+            ShardEntry shardEntry = activeShards.get(i);
+            beginHashKeys[i] = shardEntry.getBeginHashKey().toUpperCase();
+            endHashKeys[i] = shardEntry.getEndHashKey().toUpperCase();
+            rangeShardIds[i] = shardEntry.getShardId();
+        }
+    }
 }
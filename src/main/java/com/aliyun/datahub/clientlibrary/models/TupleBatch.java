@@ -0,0 +1,259 @@
+package com.aliyun.datahub.clientlibrary.models;
+
+import com.aliyun.datahub.client.exception.InvalidParameterException;
+import com.aliyun.datahub.client.model.Field;
+import com.aliyun.datahub.client.model.FieldType;
+import com.aliyun.datahub.client.model.RecordEntry;
+import com.aliyun.datahub.client.model.RecordSchema;
+import com.aliyun.datahub.client.model.TupleRecordData;
+
+import java.nio.charset.Charset;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Records of a tuple topic from one shard stored by column, BIGINT and TIMESTAMP in long[], DOUBLE in double[],
+ * BOOLEAN in boolean[], STRING as utf-8 bytes with offsets, others as objects. Attributes are not kept.
+ * A value of null reads as 0, false or null, check isNull first
+ */
+public class TupleBatch extends ShardBatch {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    // object header and reference of a value kept as object
+    private static final int OBJECT_SIZE = 32;
+
+    private final RecordSchema schema;
+    // long[], double[], boolean[], StringColumn or Object[] by field type
+    private final Object[] columns;
+    private final BitSet[] nulls;
+
+    private static class StringColumn {
+        // value of row i is data[offsets[i], offsets[i + 1])
+        private int[] offsets;
+        private byte[] data;
+    }
+
+    private TupleBatch(String shardId, RecordSchema schema, int size) {
+        super(shardId, size);
+        this.schema = schema;
+        int fieldCount = schema.getFields().size();
+        this.columns = new Object[fieldCount];
+        this.nulls = new BitSet[fieldCount];
+    }
+
+    /**
+     * @param shardId The shard of records.
+     * @param schema The schema of topic.
+     * @param records Records of the shard in order.
+     * @return The batch
+     */
+    public static TupleBatch of(String shardId, RecordSchema schema, List<RecordEntry> records) {
+        int size = records.size();
+        TupleBatch batch = new TupleBatch(shardId, schema, size);
+        TupleRecordData[] rows = new TupleRecordData[size];
+        for (int i = 0; i < size; ++i) {
+            RecordEntry record = records.get(i);
+            batch.sequences[i] = record.getSequence();
+            batch.systemTimes[i] = record.getSystemTime();
+            rows[i] = (TupleRecordData) record.getRecordData();
+        }
+
+        List<Field> fields = schema.getFields();
+        for (int field = 0; field < fields.size(); ++field) {
+            batch.nulls[field] = new BitSet(size);
+            batch.columns[field] = batch.buildColumn(fields.get(field).getType(), field, rows);
+        }
+        return batch;
+    }
+
+    private Object buildColumn(FieldType type, int field, TupleRecordData[] rows) {
+        BitSet columnNulls = nulls[field];
+        switch (type) {
+            case BIGINT:
+            case TIMESTAMP: {
+                long[] values = new long[size];
+                for (int i = 0; i < size; ++i) {
+                    Object value = rows[i].getField(field);
+                    if (value == null) {
+                        columnNulls.set(i);
+                    } else {
+                        values[i] = ((Number) value).longValue();
+                    }
+                }
+                byteSize += size * 8L;
+                return values;
+            }
+            case DOUBLE: {
+                double[] values = new double[size];
+                for (int i = 0; i < size; ++i) {
+                    Object value = rows[i].getField(field);
+                    if (value == null) {
+                        columnNulls.set(i);
+                    } else {
+                        values[i] = ((Number) value).doubleValue();
+                    }
+                }
+                byteSize += size * 8L;
+                return values;
+            }
+            case BOOLEAN: {
+                boolean[] values = new boolean[size];
+                for (int i = 0; i < size; ++i) {
+                    Object value = rows[i].getField(field);
+                    if (value == null) {
+                        columnNulls.set(i);
+                    } else {
+                        values[i] = (Boolean) value;
+                    }
+                }
+                byteSize += size;
+                return values;
+            }
+            case STRING: {
+                byte[][] bytes = new byte[size][];
+                int total = 0;
+                for (int i = 0; i < size; ++i) {
+                    Object value = rows[i].getField(field);
+                    if (value == null) {
+                        columnNulls.set(i);
+                    } else {
+                        bytes[i] = value.toString().getBytes(UTF8);
+                        total += bytes[i].length;
+                    }
+                }
+                StringColumn column = new StringColumn();
+                column.offsets = new int[size + 1];
+                column.data = new byte[total];
+                int offset = 0;
+                for (int i = 0; i < size; ++i) {
+                    column.offsets[i] = offset;
+                    if (bytes[i] != null) {
+                        System.arraycopy(bytes[i], 0, column.data, offset, bytes[i].length);
+                        offset += bytes[i].length;
+                    }
+                }
+                column.offsets[size] = offset;
+                byteSize += total + (size + 1) * 4L;
+                return column;
+            }
+            default: {
+                Object[] values = new Object[size];
+                for (int i = 0; i < size; ++i) {
+                    values[i] = rows[i].getField(field);
+                    if (values[i] == null) {
+                        columnNulls.set(i);
+                    }
+                }
+                byteSize += size * (long) OBJECT_SIZE;
+                return values;
+            }
+        }
+    }
+
+    public RecordSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * @param name The name of field.
+     * @return The index of field
+     */
+    public int getFieldIndex(String name) {
+        List<Field> fields = schema.getFields();
+        for (int i = 0; i < fields.size(); ++i) {
+            if (fields.get(i).getName().equalsIgnoreCase(name)) {
+                return i;
+            }
+        }
+        throw new InvalidParameterException("Field not found: " + name);
+    }
+
+    public boolean isNull(int field, int row) {
+        return nulls[field].get(row);
+    }
+
+    public long getLong(int field, int row) {
+        return getLongColumn(field)[row];
+    }
+
+    public double getDouble(int field, int row) {
+        return getDoubleColumn(field)[row];
+    }
+
+    public boolean getBoolean(int field, int row) {
+        return getBooleanColumn(field)[row];
+    }
+
+    public String getString(int field, int row) {
+        if (isNull(field, row)) {
+            return null;
+        }
+        StringColumn column = column(field, StringColumn.class, "STRING");
+        return new String(column.data, column.offsets[row], column.offsets[row + 1] - column.offsets[row], UTF8);
+    }
+
+    /**
+     * @return The value of any field type, boxed
+     */
+    public Object getObject(int field, int row) {
+        if (isNull(field, row)) {
+            return null;
+        }
+        Object column = columns[field];
+        if (column instanceof long[]) {
+            return ((long[]) column)[row];
+        } else if (column instanceof double[]) {
+            return ((double[]) column)[row];
+        } else if (column instanceof boolean[]) {
+            return ((boolean[]) column)[row];
+        } else if (column instanceof StringColumn) {
+            return getString(field, row);
+        }
+        return ((Object[]) column)[row];
+    }
+
+    /**
+     * Columns are shared, not to be modified
+     * @return Values of a BIGINT or TIMESTAMP field, one for each row
+     */
+    public long[] getLongColumn(int field) {
+        return column(field, long[].class, "BIGINT or TIMESTAMP");
+    }
+
+    public double[] getDoubleColumn(int field) {
+        return column(field, double[].class, "DOUBLE");
+    }
+
+    public boolean[] getBooleanColumn(int field) {
+        return column(field, boolean[].class, "BOOLEAN");
+    }
+
+    /**
+     * @return Utf-8 bytes of a STRING field for all rows, sliced by getStringOffsets
+     */
+    public byte[] getStringData(int field) {
+        return column(field, StringColumn.class, "STRING").data;
+    }
+
+    /**
+     * @return Offsets of rows in string data, the value of row i ends at offset i + 1
+     */
+    public int[] getStringOffsets(int field) {
+        return column(field, StringColumn.class, "STRING").offsets;
+    }
+
+    /**
+     * @return Rows where the field is null
+     */
+    public BitSet getNulls(int field) {
+        return nulls[field];
+    }
+
+    private <T> T column(int field, Class<T> clazz, String typeName) {
+        Object column = columns[field];
+        if (!clazz.isInstance(column)) {
+            throw new InvalidParameterException("Field type is not " + typeName + ", field: "
+                    + schema.getFields().get(field).getName());
+        }
+        return clazz.cast(column);
+    }
+}
@@ -0,0 +1,19 @@
+package com.aliyun.datahub.clientlibrary.models;
+
+public class WriteResult {
+    private String shardId;
+    private long elapsedMs;
+
+    public WriteResult(String shardId, long elapsedMs) {
+        this.shardId = shardId;
+        this.elapsedMs = elapsedMs;
+    }
+
+    public String getShardId() {
+        return shardId;
+    }
+
+    public long getElapsedMs() {
+        return elapsedMs;
+    }
+}
@@ -0,0 +1,49 @@
+package com.aliyun.datahub.clientlibrary.producer;
+
+/**
+ * Bytes of records buffered by sendAsync, reserved on append and released once sent or failed
+ */
+class BufferMemory {
+    private final long limit;
+    private long used = 0;
+
+    BufferMemory(long limit) {
+        this.limit = limit;
+    }
+
+    /**
+     * A record larger than the limit still goes if the buffer is empty, otherwise it never goes
+     */
+    synchronized boolean tryReserve(long size) {
+        if (used > 0 && used + size > limit) {
+            return false;
+        }
+        used += size;
+        return true;
+    }
+
+    synchronized boolean reserve(long size, long timeoutMs) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (!tryReserve(size)) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            wait(remaining);
+        }
+        return true;
+    }
+
+    synchronized void release(long size) {
+        used -= size;
+        notifyAll();
+    }
+
+    synchronized long getUsed() {
+        return used;
+    }
+
+    long getLimit() {
+        return limit;
+    }
+}
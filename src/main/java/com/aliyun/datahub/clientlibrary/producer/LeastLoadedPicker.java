@@ -0,0 +1,35 @@
+package com.aliyun.datahub.clientlibrary.producer;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Power of two choices: compare two random shards instead of scanning all,
+ * which keeps pick O(1) and avoids herding onto the single least loaded shard
+ */
+class LeastLoadedPicker extends ShardWriterPicker {
+    @Override
+    protected ShardWriter pick(ShardWriter[] shardWriters) {
+        int size = shardWriters.length;
+        if (size == 1) {
+            return shardWriters[0];
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(size);
+        int second = random.nextInt(size - 1);
+        if (second >= first) {
+            ++second;
+        }
+        return better(shardWriters[first], shardWriters[second]);
+    }
+
+    private ShardWriter better(ShardWriter left, ShardWriter right) {
+        long now = System.currentTimeMillis();
+        boolean leftHealthy = left.isHealthy(now);
+        boolean rightHealthy = right.isHealthy(now);
+        if (leftHealthy != rightHealthy) {
+            return leftHealthy ? left : right;
+        }
+        return left.getLoad() <= right.getLoad() ? left : right;
+    }
+}
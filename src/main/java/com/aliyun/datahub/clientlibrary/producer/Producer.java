@@ -3,16 +3,20 @@ package com.aliyun.datahub.clientlibrary.producer;
 import com.aliyun.datahub.client.exception.*;
 import com.aliyun.datahub.client.model.RecordEntry;
 import com.aliyun.datahub.client.util.FormatUtils;
+import com.aliyun.datahub.clientlibrary.common.Backoff;
 import com.aliyun.datahub.clientlibrary.config.ProducerConfig;
 import com.aliyun.datahub.clientlibrary.models.Assignment;
+import com.aliyun.datahub.clientlibrary.models.WriteResult;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * Not thread safe
+ * Thread safe, send and sendAsync can be called from multiple threads
  */
 public class Producer {
     private static final Logger LOG = LoggerFactory.getLogger(Producer.class);
@@ -20,6 +24,8 @@ public class Producer {
     private ShardGroupWriter shardGroupWriter;
     private ShardAssigner shardAssigner;
     private boolean autoAssigned;
+    private Backoff backoff;
+    private final Object assignmentLock = new Object();
     private final AtomicBoolean closed = new AtomicBoolean(false);
 
     /**
@@ -30,9 +36,12 @@ public class Producer {
      */
     public Producer(String projectName, String topicName, ProducerConfig config) {
         preCheck(projectName, topicName);
+        backoff = new Backoff(config.getRetryBackoffMs(), config.getMaxRetryBackoffMs());
         shardGroupWriter = new ShardGroupWriter(projectName, topicName, config);
         shardAssigner = new ShardAssigner(projectName, topicName, config);
         autoAssigned = true;
+        // create shard writers before any send, so that concurrent senders never see an empty group
+        syncAssignmentIfNeeded();
     }
 
     /**
@@ -44,13 +53,19 @@ public class Producer {
      */
     public Producer(String projectName, String topicName, List<String> shardIds, ProducerConfig config) {
         preCheck(projectName, topicName, shardIds);
+        backoff = new Backoff(config.getRetryBackoffMs(), config.getMaxRetryBackoffMs());
         shardAssigner = new ShardAssigner(projectName, topicName, config);
         if (!shardAssigner.checkAllActive(shardIds)) {
             shardAssigner.close();
             throw new InvalidParameterException("Shard must be valid and active");
         }
 
-        shardGroupWriter = new ShardGroupWriter(projectName, topicName, config);
+        try {
+            shardGroupWriter = new ShardGroupWriter(projectName, topicName, config);
+        } catch (Exception e) {
+            shardAssigner.close();
+            throw e;
+        }
         shardGroupWriter.createShardWriter(shardIds);
         autoAssigned = false;
     }
@@ -68,10 +83,15 @@ public class Producer {
             throw new InvalidParameterException("Retry must not be negative");
         }
 
+        // records written are removed, retry only sends the rest
+        List<RecordEntry> pending = new ArrayList<>(records);
         for (int retry = 0; retry <= maxRetry && !closed.get(); ++retry) {
+            if (retry > 0) {
+                backoff.sleep(retry - 1);
+            }
             try {
                 syncAssignmentIfNeeded();
-                shardGroupWriter.write(records);
+                shardGroupWriter.write(pending);
                 return;
             } catch (MalformedRecordException | InvalidParameterException e) {
                 fail(e, true);
@@ -87,7 +107,82 @@ public class Producer {
     }
 
     /**
-     * Close to release resource
+     * Get a record for sendAsync, with empty tuple data for tuple topic or no data for blob topic.
+     * It is reused once written or failed if {@link ProducerConfig#getRecordPoolSize()} is positive,
+     * so it must not be touched after sendAsync, read the write result from future or callback instead
+     * @return The record to fill and send
+     */
+    public RecordEntry newRecord() {
+        if (closed.get()) {
+            throw new DatahubClientException("This producer has already been closed");
+        }
+        return shardGroupWriter.newRecord();
+    }
+
+    /**
+     * Append record into the send buffer of a shard, the buffer is sent by background sender
+     * when it is full or lingered for {@link ProducerConfig#getAsyncLingerTimeMs()}
+     * @param record The record to send.
+     * @return The future of write result
+     */
+    public Future<WriteResult> sendAsync(RecordEntry record) {
+        return sendAsync(record, null);
+    }
+
+    /**
+     * Append record into the send buffer of a shard, the buffer is sent by background sender
+     * when it is full or lingered for {@link ProducerConfig#getAsyncLingerTimeMs()}
+     * @param record The record to send.
+     * @param callback The callback invoked in sender thread when the record is written or failed.
+     * @return The future of write result
+     */
+    public Future<WriteResult> sendAsync(RecordEntry record, WriteCallback callback) {
+        if (closed.get()) {
+            throw new DatahubClientException("This producer has already been closed");
+        }
+        if (record == null) {
+            throw new InvalidParameterException("Record must not be null");
+        }
+
+        syncAssignmentIfNeeded();
+        return shardGroupWriter.writeAsync(record, callback);
+    }
+
+    /**
+     * Block until the records appended by sendAsync before this call are written or failed,
+     * records appended meanwhile are sent as usual
+     */
+    public void flush() {
+        if (closed.get()) {
+            throw new DatahubClientException("This producer has already been closed");
+        }
+        shardGroupWriter.flush();
+    }
+
+    /**
+     * Estimated bytes of records appended by sendAsync and not written or failed yet
+     */
+    public long getBufferedSize() {
+        return shardGroupWriter.getBufferedSize();
+    }
+
+    /**
+     * Buffer fill ratio, sendAsync blocks, fails or drops records once it reaches 1
+     */
+    public double getBufferUsage() {
+        return (double) shardGroupWriter.getBufferedSize() / shardGroupWriter.getBufferLimit();
+    }
+
+    /**
+     * Count of records accepted by sendAsync and not written or failed yet
+     */
+    public int getBufferedRecordCount() {
+        return shardGroupWriter.getBufferedRecordCount();
+    }
+
+    /**
+     * Close to release resource, records buffered by sendAsync are sent before closed,
+     * those not sent within {@link ProducerConfig#getCloseTimeoutMs()} fail
      */
     public void close() {
         if (closed.compareAndSet(false, true)) {
@@ -116,14 +211,16 @@ public class Producer {
     }
 
     private void syncAssignmentIfNeeded() {
-        if (!autoAssigned) {
+        if (!autoAssigned || !shardAssigner.isAssignmentChanged()) {
             return;
         }
 
-        Assignment newAssignment = shardAssigner.getNewAssignment();
+        synchronized (assignmentLock) {
+            Assignment newAssignment = shardAssigner.getNewAssignment();
 
-        shardGroupWriter.createShardWriter(newAssignment.getNewShardList());
-        shardGroupWriter.removeShardWriter(newAssignment.getReleaseShardList());
+            shardGroupWriter.createShardWriter(newAssignment.getNewShardList());
+            shardGroupWriter.removeShardWriter(newAssignment.getReleaseShardList());
+        }
     }
 
     private void fail(DatahubClientException exception, boolean needThrow) {
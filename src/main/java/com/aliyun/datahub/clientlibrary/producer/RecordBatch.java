@@ -0,0 +1,85 @@
+package com.aliyun.datahub.clientlibrary.producer;
+
+import com.aliyun.datahub.client.exception.DatahubClientException;
+import com.aliyun.datahub.client.model.RecordEntry;
+import com.aliyun.datahub.clientlibrary.models.WriteResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class RecordBatch {
+    private final List<RecordEntry> records = new ArrayList<>();
+    private final List<WriteFuture> futures = new ArrayList<>();
+    private final long createTimeMs = System.currentTimeMillis();
+    private long size = 0;
+    // dispatch order on the shard writer
+    private long sequence = -1;
+
+    void add(RecordEntry record, WriteFuture future, long recordSize) {
+        records.add(record);
+        futures.add(future);
+        size += recordSize;
+    }
+
+    void addAll(RecordBatch other) {
+        records.addAll(other.records);
+        futures.addAll(other.futures);
+        size += other.size;
+    }
+
+    List<RecordEntry> getRecords() {
+        return records;
+    }
+
+    List<WriteFuture> getFutures() {
+        return futures;
+    }
+
+    int getRecordCount() {
+        return records.size();
+    }
+
+    long getSize() {
+        return size;
+    }
+
+    long getCreateTimeMs() {
+        return createTimeMs;
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+    boolean isEmpty() {
+        return records.isEmpty();
+    }
+
+    void complete(String shardId) {
+        WriteResult result = new WriteResult(shardId, System.currentTimeMillis() - createTimeMs);
+        for (WriteFuture future : futures) {
+            future.complete(result);
+        }
+        releasePooled();
+    }
+
+    void fail(DatahubClientException exception) {
+        for (WriteFuture future : futures) {
+            future.fail(exception);
+        }
+        releasePooled();
+    }
+
+    /**
+     * Records got from the pool go back once callbacks are done, the batch is not to be used afterwards
+     */
+    private void releasePooled() {
+        for (RecordEntry record : records) {
+            RecordEntryPool.releaseIfPooled(record);
+        }
+    }
+}
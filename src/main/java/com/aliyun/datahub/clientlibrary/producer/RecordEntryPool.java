@@ -0,0 +1,97 @@
+package com.aliyun.datahub.clientlibrary.producer;
+
+import com.aliyun.datahub.client.model.RecordData;
+import com.aliyun.datahub.client.model.RecordEntry;
+import com.aliyun.datahub.client.model.RecordSchema;
+import com.aliyun.datahub.client.model.TupleRecordData;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reuse records sent by sendAsync, with their tuple data and attribute map, once they are written or failed
+ */
+class RecordEntryPool {
+    // null for blob topic
+    private final RecordSchema schema;
+    private final int maxSize;
+    private final ConcurrentLinkedQueue<PooledRecordEntry> pool = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger(0);
+
+    static class PooledRecordEntry extends RecordEntry {
+        private final RecordEntryPool owner;
+
+        PooledRecordEntry(RecordEntryPool owner) {
+            this.owner = owner;
+        }
+
+        /**
+         * Give back to the pool, not to be used afterwards
+         */
+        void release() {
+            owner.release(this);
+        }
+    }
+
+    RecordEntryPool(RecordSchema schema, int maxSize) {
+        this.schema = schema;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return A record without shard id, keys or attributes, with empty tuple data of the topic schema
+     * for tuple topic or no data for blob topic
+     */
+    RecordEntry acquire() {
+        PooledRecordEntry record = pool.poll();
+        if (record != null) {
+            size.decrementAndGet();
+            return record;
+        }
+
+        record = new PooledRecordEntry(this);
+        if (schema != null) {
+            record.setRecordData(new TupleRecordData(schema));
+        }
+        return record;
+    }
+
+    /**
+     * Give the record back if it was got from a pool, records created by users are left alone
+     */
+    static void releaseIfPooled(RecordEntry record) {
+        if (record instanceof PooledRecordEntry) {
+            ((PooledRecordEntry) record).release();
+        }
+    }
+
+    private void release(PooledRecordEntry record) {
+        if (size.incrementAndGet() > maxSize) {
+            size.decrementAndGet();
+            return;
+        }
+
+        // cursor, sequence and system time are only set on records read, never on records to write
+        record.setShardId(null);
+        record.setPartitionKey(null);
+        record.setHashKey(null);
+        Map<String, String> attributes = record.getAttributes();
+        if (attributes != null) {
+            attributes.clear();
+        }
+        RecordData data = record.getRecordData();
+        if (schema == null) {
+            record.setRecordData(null);
+        } else if (data instanceof TupleRecordData && ((TupleRecordData) data).getRecordSchema() == schema) {
+            TupleRecordData tuple = (TupleRecordData) data;
+            for (int i = 0; i < schema.getFields().size(); ++i) {
+                tuple.setField(i, null);
+            }
+        } else {
+            // replaced by the caller, acquire always hands out the tuple data of the topic schema
+            record.setRecordData(new TupleRecordData(schema));
+        }
+        pool.offer(record);
+    }
+}
@@ -0,0 +1,84 @@
+package com.aliyun.datahub.clientlibrary.producer;
+
+import com.aliyun.datahub.client.model.RecordEntry;
+import com.aliyun.datahub.clientlibrary.common.RecordSizeEstimator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Pack records into putRecordsByShard requests close to, but not over, the request limits
+ */
+class RequestPacker {
+    private RecordSizeEstimator estimator;
+    private int maxCount;
+    private long maxSize;
+
+    RequestPacker(RecordSizeEstimator estimator, int maxCount, long maxSize) {
+        this.estimator = estimator;
+        this.maxCount = maxCount;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Split records into requests in order, a single record larger than max size still gets a request of its own
+     */
+    List<List<RecordEntry>> split(List<RecordEntry> records) {
+        if (records.size() <= 1) {
+            return Collections.singletonList(records);
+        }
+
+        List<List<RecordEntry>> result = new ArrayList<>();
+        List<RecordEntry> current = new ArrayList<>();
+        long currentSize = 0;
+        for (RecordEntry record : records) {
+            long recordSize = estimator.estimate(record);
+            if (!current.isEmpty() && (current.size() >= maxCount || currentSize + recordSize > maxSize)) {
+                result.add(current);
+                current = new ArrayList<>();
+                currentSize = 0;
+            }
+            current.add(record);
+            currentSize += recordSize;
+        }
+        if (!current.isEmpty()) {
+            result.add(current);
+        }
+        return result;
+    }
+
+    /**
+     * Coalesce adjacent batches in order while the merged request is still within limits
+     */
+    List<RecordBatch> coalesce(List<RecordBatch> batches) {
+        if (batches.size() <= 1) {
+            return batches;
+        }
+
+        List<RecordBatch> result = new ArrayList<>();
+        RecordBatch current = null;
+        for (RecordBatch batch : batches) {
+            if (current != null && current.getRecordCount() + batch.getRecordCount() <= maxCount
+                    && current.getSize() + batch.getSize() <= maxSize) {
+                current.addAll(batch);
+                continue;
+            }
+            current = batch;
+            result.add(current);
+        }
+        return result;
+    }
+
+    int getMaxCount() {
+        return maxCount;
+    }
+
+    long getMaxSize() {
+        return maxSize;
+    }
+
+    long estimate(RecordEntry record) {
+        return estimator.estimate(record);
+    }
+}
@@ -0,0 +1,25 @@
+package com.aliyun.datahub.clientlibrary.producer;
+
+/**
+ * Retries of a shard are paid by its successful requests, so a failing shard stops retrying
+ * soon instead of multiplying the load on it
+ */
+class RetryBudget {
+    private static final double MAX_TOKENS = 10;
+    // retries allowed per successful request
+    private static final double DEPOSIT_PER_SUCCESS = 0.2;
+
+    private double tokens = MAX_TOKENS;
+
+    synchronized void deposit() {
+        tokens = Math.min(MAX_TOKENS, tokens + DEPOSIT_PER_SUCCESS);
+    }
+
+    synchronized boolean tryWithdraw() {
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        return true;
+    }
+}
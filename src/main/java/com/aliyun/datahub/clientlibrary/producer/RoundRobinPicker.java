@@ -0,0 +1,13 @@
+package com.aliyun.datahub.clientlibrary.producer;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+class RoundRobinPicker extends ShardWriterPicker {
+    private final AtomicInteger index = new AtomicInteger(0);
+
+    @Override
+    protected ShardWriter pick(ShardWriter[] shardWriters) {
+        int next = index.incrementAndGet() & Integer.MAX_VALUE;
+        return shardWriters[next % shardWriters.length];
+    }
+}
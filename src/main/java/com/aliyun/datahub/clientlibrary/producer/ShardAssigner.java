@@ -15,11 +15,12 @@ public class ShardAssigner {
     private ClientManager clientManager;
     private ShardManager shardManager;
 
-    private Set<String> currentAssignment = new HashSet<>();
+    private volatile Set<String> currentAssignment = new HashSet<>();
     private final AtomicBoolean closed = new AtomicBoolean(false);
 
     ShardAssigner(String projectName, String topicName, ProducerConfig config) {
-        clientManager = ClientManagerFactory.getClientManager(projectName, topicName, config.getDatahubConfig());
+        clientManager = ClientManagerFactory.getClientManager(projectName, topicName,
+                config.getDatahubConfig(), config.getHttpConfig());
         shardManager = clientManager.getShardManager();
     }
 
@@ -31,8 +32,18 @@ public class ShardAssigner {
         shardManager.triggerUpdate();
     }
 
-    Assignment getNewAssignment() {
+    boolean isAssignmentChanged() {
+        // shard meta is replaced as a whole when refreshed
+        return shardManager.getShardMeta().getActiveShardIds() != currentAssignment;
+    }
+
+    synchronized Assignment getNewAssignment() {
         Set<String> newAssignment = shardManager.getShardMeta().getActiveShardIds();
+        if (newAssignment == currentAssignment) {
+            // is the same object
+            return Assignment.emptyAssignment;
+        }
+
         Assignment result = new Assignment();
 
         // find release shard
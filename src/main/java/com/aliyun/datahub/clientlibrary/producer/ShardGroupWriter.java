@@ -1,63 +1,368 @@
 package com.aliyun.datahub.clientlibrary.producer;
 
-import com.aliyun.datahub.client.exception.DatahubClientException;
-import com.aliyun.datahub.client.exception.ShardSealedException;
+import com.aliyun.datahub.client.exception.*;
 import com.aliyun.datahub.client.model.RecordEntry;
+import com.aliyun.datahub.client.model.TupleRecordData;
+import com.aliyun.datahub.clientlibrary.common.Backoff;
+import com.aliyun.datahub.clientlibrary.common.ClientManager;
+import com.aliyun.datahub.clientlibrary.common.ClientManagerFactory;
+import com.aliyun.datahub.clientlibrary.common.RecordSizeEstimator;
+import com.aliyun.datahub.clientlibrary.config.BufferFullPolicy;
 import com.aliyun.datahub.clientlibrary.config.ProducerConfig;
+import com.aliyun.datahub.clientlibrary.models.TopicInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
+/**
+ * Thread safe, shard writers are only locked when the assignment changes
+ */
 public class ShardGroupWriter {
+    private static final Logger LOG = LoggerFactory.getLogger(ShardGroupWriter.class);
+
     private ProducerConfig config;
     private String projectName;
     private String topicName;
 
-    private final ShardWriterPicker shardWriterPicker = new ShardWriterPicker();
-    private final Map<String, ShardWriter> shardWriterMap = new HashMap<>();
+    private ClientManager clientManager;
+    private TopicInfo topicInfo;
+    private RequestPacker packer;
+    // null if record pool is disabled
+    private RecordEntryPool recordPool;
+    // null if parallel write is disabled
+    private ExecutorService executor;
+    // null if records are not partitioned by key
+    private ShardPartitioner partitioner;
+
+    private final ShardWriterPicker shardWriterPicker;
+    // records without partition key go to this shard writer until its batch is full, so batches fill up at once
+    private final AtomicReference<ShardWriter> stickyShardWriter = new AtomicReference<>();
+    private final Map<String, ShardWriter> shardWriterMap = new ConcurrentHashMap<>();
     private final AtomicBoolean closed = new AtomicBoolean(false);
 
+    // background sender for records appended by writeAsync
+    private final Object senderCond = new Object();
+    private final AtomicInteger pendingCount = new AtomicInteger(0);
+    private final BufferMemory bufferMemory;
+    private final AtomicInteger sendingCount = new AtomicInteger(0);
+    private final AtomicBoolean senderRunning = new AtomicBoolean(false);
+    // guarded by senderCond
+    private boolean senderSignalled = false;
+    private volatile Thread senderThread;
+    // runs the requests dispatched by the sender, several per shard at most, and delayed retries
+    private volatile ScheduledThreadPoolExecutor sendExecutor;
+    private Backoff backoff;
+
     ShardGroupWriter(String projectName, String topicName, ProducerConfig config) {
         this.config = config;
         this.projectName = projectName;
         this.topicName = topicName;
+        this.shardWriterPicker = ShardWriterPicker.create(config.getShardPickStrategy());
+        this.bufferMemory = new BufferMemory(config.getBufferSize());
+        this.backoff = new Backoff(config.getRetryBackoffMs(), config.getMaxRetryBackoffMs());
+
+        if (config.isParallelWrite()) {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(config.getParallelWriteThreads(),
+                    config.getParallelWriteThreads(), 60L, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+            pool.allowCoreThreadTimeOut(true);
+            executor = pool;
+        }
+
+        this.clientManager = ClientManagerFactory.getClientManager(projectName, topicName,
+                config.getDatahubConfig(), config.getHttpConfig());
+        this.topicInfo = getTopic(projectName, topicName);
+        this.packer = new RequestPacker(new RecordSizeEstimator(topicInfo),
+                config.getMaxRequestRecordCount(), config.getMaxRequestSize());
+        if (config.getRecordPoolSize() > 0) {
+            recordPool = new RecordEntryPool(topicInfo.getRecordSchema(), config.getRecordPoolSize());
+        }
+
+        if (config.getPartitionKeyAttribute() != null) {
+            partitioner = new ShardPartitioner(config.getPartitionKeyAttribute(), clientManager.getShardManager());
+        }
     }
 
-    void createShardWriter(List<String> shardIds) {
+    synchronized void createShardWriter(List<String> shardIds) {
         checkNotClosed();
         for (String shardId : shardIds) {
             if (shardWriterMap.containsKey(shardId)) {
                 continue;
             }
-            ShardWriter shardWriter = new ShardWriter(projectName, topicName, shardId, config);
+            ShardWriter shardWriter = new ShardWriter(projectName, topicName, shardId, config, packer);
             shardWriterMap.put(shardId, shardWriter);
             shardWriterPicker.addShardWriter(shardWriter);
         }
     }
 
     void removeShardWriter(List<String> shardIds) {
+        List<ShardWriter> removed = new ArrayList<>();
+        synchronized (this) {
+            checkNotClosed();
+            for (String shardId : shardIds) {
+                ShardWriter shardWriter = shardWriterMap.remove(shardId);
+                if (shardWriter != null) {
+                    shardWriterPicker.removeShardWriter(shardWriter);
+                    removed.add(shardWriter);
+                }
+            }
+        }
+
+        for (ShardWriter shardWriter : removed) {
+            // buffered records of a released shard go to the remaining shards
+            for (RecordBatch batch : shardWriter.closeBuffer()) {
+                reroute(batch, null);
+            }
+            shardWriter.close();
+        }
+    }
+
+    /**
+     * Write records, the records written are removed from the list so that retry only sends the rest
+     * @param records The records to write.
+     */
+    void write(List<RecordEntry> records) {
         checkNotClosed();
-        for (String shardId : shardIds) {
-            ShardWriter shardWriter = shardWriterMap.get(shardId);
-            if (shardWriter != null) {
+        List<WriteTask> tasks = createWriteTasks(records);
+        if (executor == null || tasks.size() == 1) {
+            for (WriteTask task : tasks) {
+                task.run();
+            }
+        } else {
+            waitAll(submitAll(tasks));
+        }
+
+        List<RecordEntry> remaining = new ArrayList<>();
+        DatahubClientException exception = null;
+        for (WriteTask task : tasks) {
+            if (task.exception != null) {
+                if (exception == null) {
+                    exception = task.exception;
+                }
+                remaining.addAll(task.unwritten);
+            }
+        }
+
+        records.clear();
+        records.addAll(remaining);
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    RecordEntry newRecord() {
+        if (recordPool == null) {
+            RecordEntry record = new RecordEntry();
+            if (topicInfo.getRecordSchema() != null) {
+                record.setRecordData(new TupleRecordData(topicInfo.getRecordSchema()));
+            }
+            return record;
+        }
+        return recordPool.acquire();
+    }
+
+    WriteFuture writeAsync(RecordEntry record, WriteCallback callback) {
+        checkNotClosed();
+        startSenderIfNeeded();
+
+        WriteFuture future = new WriteFuture(callback);
+        long recordSize = packer.estimate(record);
+        DatahubClientException exception = reserve(recordSize);
+        if (exception != null) {
+            future.fail(exception);
+            // never buffered, so no batch gives it back
+            RecordEntryPool.releaseIfPooled(record);
+            return future;
+        }
+        pendingCount.incrementAndGet();
+        append(record, future, recordSize);
+        return future;
+    }
+
+    /**
+     * Estimated bytes of the records buffered or being sent by writeAsync
+     */
+    long getBufferedSize() {
+        return bufferMemory.getUsed();
+    }
+
+    long getBufferLimit() {
+        return bufferMemory.getLimit();
+    }
+
+    int getBufferedRecordCount() {
+        return Math.max(pendingCount.get(), 0);
+    }
+
+    /**
+     * Wait for the records appended before, records appended meanwhile are sent as usual
+     */
+    void flush() {
+        checkNotClosed();
+        List<WriteFuture> futures = new ArrayList<>();
+        for (ShardWriter shardWriter : shardWriterMap.values()) {
+            futures.addAll(shardWriter.markFlush());
+        }
+        signalSender();
+        for (WriteFuture future : futures) {
+            while (!future.isDone() && !closed.get()) {
+                try {
+                    future.get(config.getAsyncLingerTimeMs() + 10, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new DatahubClientException("Flush interrupted");
+                } catch (ExecutionException | TimeoutException e) {
+                    // failed records are reported by their futures, timeout rechecks closed
+                }
+            }
+        }
+    }
+
+    void close() {
+        if (closed.compareAndSet(false, true)) {
+            signalSender();
+            Thread sender = senderThread;
+            if (sender != null) {
+                try {
+                    sender.join(Math.max(1, config.getCloseTimeoutMs()));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    LOG.warn(e.getMessage());
+                }
+                if (sender.isAlive()) {
+                    LOG.warn("Close timeout, fail records still buffered, Project: {}, Topic: {}, TimeoutMs: {}",
+                            projectName, topicName, config.getCloseTimeoutMs());
+                    sender.interrupt();
+                }
+            }
+            ScheduledThreadPoolExecutor senderExecutor = sendExecutor;
+            if (senderExecutor != null) {
+                senderExecutor.shutdown();
+            }
+
+            List<ShardWriter> shardWriters;
+            synchronized (this) {
+                shardWriters = new ArrayList<>(shardWriterMap.values());
+                shardWriterMap.clear();
+            }
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+            if (clientManager != null) {
+                clientManager.close();
+            }
+            for (ShardWriter shardWriter : shardWriters) {
+                // records appended after the sender exited
+                for (RecordBatch batch : shardWriter.closeBuffer()) {
+                    done(batch.getRecordCount(), batch.getSize());
+                    batch.fail(new DatahubClientException("This shard group writer has already been closed"));
+                }
                 shardWriter.close();
-                shardWriterMap.remove(shardId);
                 shardWriterPicker.removeShardWriter(shardWriter);
             }
         }
     }
 
-    void write(List<RecordEntry> records) {
-        checkNotClosed();
-        ShardWriter shardWriter = shardWriterPicker.pick();
+    private TopicInfo getTopic(String projectName, String topicName) {
+        try {
+            return new TopicInfo(clientManager.getClient().getTopic(projectName, topicName));
+        } catch (Exception e) {
+            close();
+            throw e;
+        }
+    }
+
+    private void checkNotClosed() {
+        if (closed.get()) {
+            throw new DatahubClientException("This shard group writer has already been closed");
+        }
+    }
+
+    private List<WriteTask> createWriteTasks(List<RecordEntry> records) {
+        List<WriteTask> tasks = new ArrayList<>();
+
+        // group by owner shard, keep the order of records with the same key
+        Map<ShardWriter, List<RecordEntry>> groups = new LinkedHashMap<>();
+        List<RecordEntry> others = new ArrayList<>();
+        for (RecordEntry record : records) {
+            ShardWriter shardWriter = route(record);
+            if (shardWriter == null) {
+                others.add(record);
+                continue;
+            }
+            List<RecordEntry> group = groups.get(shardWriter);
+            if (group == null) {
+                group = new ArrayList<>();
+                groups.put(shardWriter, group);
+            }
+            group.add(record);
+        }
+
+        for (Map.Entry<ShardWriter, List<RecordEntry>> entry : groups.entrySet()) {
+            // requests of one shard are sent in order
+            tasks.add(new WriteTask(entry.getKey(), packer.split(entry.getValue())));
+        }
+
+        if (!others.isEmpty()) {
+            if (executor != null) {
+                // records without key can spread over all shards
+                for (List<RecordEntry> request : packer.split(others)) {
+                    tasks.add(new WriteTask(pickShardWriter(), Collections.singletonList(request)));
+                }
+            } else {
+                tasks.add(new WriteTask(pickShardWriter(), packer.split(others)));
+            }
+        }
+        return tasks;
+    }
+
+    private List<Future<?>> submitAll(List<WriteTask> tasks) {
+        List<Future<?>> futures = new ArrayList<>();
+        for (WriteTask task : tasks) {
+            try {
+                futures.add(executor.submit(task));
+            } catch (RejectedExecutionException e) {
+                task.fail(new DatahubClientException("Parallel write rejected, " + e.getMessage()), 0);
+            }
+        }
+        return futures;
+    }
+
+    private void waitAll(List<Future<?>> futures) {
+        boolean interrupted = false;
+        for (Future<?> future : futures) {
+            while (true) {
+                try {
+                    // task catches its exceptions
+                    future.get();
+                    break;
+                } catch (InterruptedException e) {
+                    // records may be written, so wait anyway to report them correctly
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    LOG.error("Parallel write task failed, Exception: {}", e.getMessage());
+                    break;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
 
+    private ShardWriter pickShardWriter() {
+        ShardWriter shardWriter = shardWriterPicker.pick();
         if (shardWriter == null) {
             throw new DatahubClientException("No active shard");
         }
+        return shardWriter;
+    }
 
+    private void writeTo(ShardWriter shardWriter, List<RecordEntry> records) {
         try {
             shardWriter.write(records);
         } catch (ShardSealedException e) {
@@ -66,40 +371,359 @@ public class ShardGroupWriter {
         }
     }
 
-    void close() {
-        if (closed.compareAndSet(false, true)) {
-            for (ShardWriter shardWriter : shardWriterMap.values()) {
-                shardWriter.close();
+    private ShardWriter route(RecordEntry record) {
+        if (partitioner == null) {
+            return null;
+        }
+        String shardId = partitioner.partition(record);
+        // owner shard may be not assigned to this group, fall back to round robin
+        return shardId == null ? null : shardWriterMap.get(shardId);
+    }
+
+    private void append(RecordEntry record, WriteFuture future, long recordSize) {
+        ShardWriter owner = route(record);
+        if (owner != null) {
+            ShardWriter.AppendResult result = owner.append(record, future, recordSize);
+            if (result != ShardWriter.AppendResult.REJECTED) {
+                if (result != ShardWriter.AppendResult.APPENDED) {
+                    signalSender();
+                }
+                return;
+            }
+        }
+
+        while (true) {
+            ShardWriter shardWriter = stickyShardWriter.get();
+            if (shardWriter == null) {
+                shardWriter = shardWriterPicker.pick();
+                if (shardWriter == null) {
+                    done(1, recordSize);
+                    future.fail(new DatahubClientException("No active shard"));
+                    RecordEntryPool.releaseIfPooled(record);
+                    return;
+                }
+                if (!stickyShardWriter.compareAndSet(null, shardWriter)) {
+                    continue;
+                }
+            }
+
+            ShardWriter.AppendResult result = shardWriter.append(record, future, recordSize);
+            if (result == ShardWriter.AppendResult.REJECTED) {
+                // picked just before the shard released
                 shardWriterPicker.removeShardWriter(shardWriter);
+                stickyShardWriter.compareAndSet(shardWriter, null);
+                continue;
             }
-            shardWriterMap.clear();
+            if (result == ShardWriter.AppendResult.BATCH_FULL) {
+                // move on once the batch is full, by the pick strategy
+                stickyShardWriter.compareAndSet(shardWriter, null);
+            }
+            if (result != ShardWriter.AppendResult.APPENDED) {
+                signalSender();
+            }
+            return;
         }
     }
 
-    private void checkNotClosed() {
-        if (closed.get()) {
-            throw new DatahubClientException("This shard group writer has already been closed");
+    private void reroute(RecordBatch batch, ShardWriter failedWriter) {
+        List<RecordEntry> records = batch.getRecords();
+        List<WriteFuture> futures = batch.getFutures();
+        for (int i = 0; i < records.size(); ++i) {
+            RecordEntry record = records.get(i);
+            append(record, futures.get(i), packer.estimate(record));
+        }
+        if (failedWriter != null) {
+            LOG.warn("Reroute records of unavailable shard, Project: {}, Topic: {}, ShardId: {}, Records: {}",
+                    projectName, topicName, failedWriter.getShardId(), records.size());
         }
     }
 
-    private class ShardWriterPicker {
-        private int index = 0;
-        private final List<ShardWriter> shardWriterList = new ArrayList<>();
+    private void signalSender() {
+        synchronized (senderCond) {
+            senderSignalled = true;
+            senderCond.notifyAll();
+        }
+    }
 
-        ShardWriter pick() {
-            if (shardWriterList.isEmpty()) {
+    /**
+     * @return null if reserved, otherwise the exception to fail the record
+     */
+    private DatahubClientException reserve(long recordSize) {
+        BufferFullPolicy policy = config.getBufferFullPolicy();
+        if (bufferMemory.tryReserve(recordSize)) {
+            return null;
+        }
+        if (policy == BufferFullPolicy.FAIL) {
+            return new DatahubClientException("Buffer is full");
+        }
+        if (policy == BufferFullPolicy.DROP_OLDEST) {
+            while (dropOldestBatch()) {
+                if (bufferMemory.tryReserve(recordSize)) {
+                    return null;
+                }
+            }
+        }
+
+        try {
+            if (bufferMemory.reserve(recordSize, config.getMaxBlockTimeMs())) {
                 return null;
             }
-            index = (index + 1) % shardWriterList.size();
-            return shardWriterList.get(index);
+            return new DatahubClientException("Buffer is full after waiting " + config.getMaxBlockTimeMs() + " ms");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new DatahubClientException("Wait for buffer interrupted");
+        }
+    }
+
+    /**
+     * Fail the oldest batch not being sent yet
+     * @return false if no batch can be dropped
+     */
+    private boolean dropOldestBatch() {
+        ShardWriter oldest = null;
+        long oldestTimeMs = Long.MAX_VALUE;
+        for (ShardWriter shardWriter : shardWriterMap.values()) {
+            long timeMs = shardWriter.getOldestBatchTimeMs();
+            if (timeMs >= 0 && timeMs < oldestTimeMs) {
+                oldest = shardWriter;
+                oldestTimeMs = timeMs;
+            }
+        }
+        RecordBatch batch = oldest == null ? null : oldest.removeOldestBatch();
+        if (batch == null) {
+            return false;
+        }
+        LOG.warn("Buffer is full, drop oldest records, Project: {}, Topic: {}, ShardId: {}, Records: {}",
+                projectName, topicName, oldest.getShardId(), batch.getRecordCount());
+        done(batch.getRecordCount(), batch.getSize());
+        batch.fail(new DatahubClientException("Buffer is full, records dropped"));
+        return true;
+    }
+
+    /**
+     * Called before the futures complete, so that a flush woken by them sees the buffer released
+     */
+    private void done(int count, long size) {
+        bufferMemory.release(size);
+        pendingCount.addAndGet(-count);
+    }
+
+    private void startSenderIfNeeded() {
+        if (!senderRunning.compareAndSet(false, true)) {
+            return;
+        }
+        ScheduledThreadPoolExecutor previous = sendExecutor;
+        if (previous != null) {
+            // the sender stopped by an error, requests in flight still finish on the previous executor
+            previous.shutdown();
+        }
+        ScheduledThreadPoolExecutor senderExecutor = new ScheduledThreadPoolExecutor(config.getAsyncSendThreads());
+        senderExecutor.setKeepAliveTime(60L, TimeUnit.SECONDS);
+        senderExecutor.allowCoreThreadTimeOut(true);
+        sendExecutor = senderExecutor;
+        Thread sender = new Thread(new Sender(), "datahub-producer-sender-" + topicName);
+        sender.setDaemon(true);
+        senderThread = sender;
+        sender.start();
+    }
+
+    private class WriteTask implements Runnable {
+        private ShardWriter shardWriter;
+        private List<List<RecordEntry>> requests;
+        private volatile List<RecordEntry> unwritten = Collections.emptyList();
+        private volatile DatahubClientException exception;
+
+        WriteTask(ShardWriter shardWriter, List<List<RecordEntry>> requests) {
+            this.shardWriter = shardWriter;
+            this.requests = requests;
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < requests.size(); ++i) {
+                try {
+                    writeTo(shardWriter, requests.get(i));
+                } catch (DatahubClientException e) {
+                    fail(e, i);
+                    return;
+                } catch (Throwable e) {
+                    fail(new DatahubClientException(e.getMessage()), i);
+                    return;
+                }
+            }
+        }
+
+        void fail(DatahubClientException e, int from) {
+            List<RecordEntry> result = new ArrayList<>();
+            for (int i = from; i < requests.size(); ++i) {
+                result.addAll(requests.get(i));
+            }
+            unwritten = result;
+            exception = e;
+        }
+    }
+
+    private class Sender implements Runnable {
+        @Override
+        public void run() {
+            try {
+                while (!closed.get()) {
+                    waitSignal();
+                    // batches to flush were made ready by flush, the rest wait for linger time
+                    dispatchReadyBatches(false);
+                }
+                // send what is left before exit
+                while (pendingCount.get() > 0) {
+                    if (!dispatchReadyBatches(true) && sendingCount.get() == 0) {
+                        break;
+                    }
+                    synchronized (senderCond) {
+                        if (!senderSignalled) {
+                            senderCond.wait(10);
+                        }
+                        senderSignalled = false;
+                    }
+                }
+            } catch (Throwable e) {
+                LOG.error("Producer sender stopped, Project: {}, Topic: {}, Exception: {}",
+                        projectName, topicName, e.getMessage());
+            } finally {
+                if (closed.get()) {
+                    // started while closing, close may have missed this executor
+                    sendExecutor.shutdown();
+                }
+                senderRunning.set(false);
+            }
+        }
+
+        private void waitSignal() throws InterruptedException {
+            synchronized (senderCond) {
+                if (!closed.get() && !senderSignalled) {
+                    senderCond.wait(Math.max(1, config.getAsyncLingerTimeMs()));
+                }
+                senderSignalled = false;
+            }
         }
 
-        void addShardWriter(ShardWriter shardWriter) {
-            shardWriterList.add(shardWriter);
+        private boolean dispatchReadyBatches(boolean force) {
+            boolean dispatched = false;
+            for (ShardWriter shardWriter : shardWriterMap.values()) {
+                RecordBatch batch;
+                while ((batch = shardWriter.poll(force)) != null) {
+                    dispatched = true;
+                    sendingCount.incrementAndGet();
+                    SendTask task = new SendTask(shardWriter, batch);
+                    try {
+                        sendExecutor.execute(task);
+                    } catch (RejectedExecutionException e) {
+                        task.finish(failure(batch, new DatahubClientException("Send rejected, " + e.getMessage())));
+                    }
+                }
+            }
+            return dispatched;
+        }
+    }
+
+    private class SendTask implements Runnable {
+        private ShardWriter shardWriter;
+        private RecordBatch batch;
+        private int retry = 0;
+
+        SendTask(ShardWriter shardWriter, RecordBatch batch) {
+            this.shardWriter = shardWriter;
+            this.batch = batch;
         }
 
-        void removeShardWriter(ShardWriter shardWriter) {
-            shardWriterList.remove(shardWriter);
+        @Override
+        public void run() {
+            Runnable completion;
+            try {
+                completion = send();
+            } catch (Throwable e) {
+                completion = failure(batch, new DatahubClientException(e.getMessage()));
+            }
+            // null if retry scheduled, the batch keeps its window slot so that completions stay in order
+            if (completion != null) {
+                finish(completion);
+            }
+        }
+
+        void finish(Runnable completion) {
+            try {
+                shardWriter.finish(batch, completion);
+            } finally {
+                sendingCount.decrementAndGet();
+                // the window of the shard has room again
+                signalSender();
+            }
         }
+
+        private Runnable send() {
+            try {
+                shardWriter.write(batch.getRecords());
+                return new Runnable() {
+                    @Override
+                    public void run() {
+                        done(batch.getRecordCount(), batch.getSize());
+                        batch.complete(shardWriter.getShardId());
+                    }
+                };
+            } catch (MalformedRecordException | InvalidParameterException e) {
+                return failure(batch, e);
+            } catch (ShardSealedException | ResourceNotFoundException e) {
+                // split/merge, stop buffering on this shard and try the other shards
+                shardWriterPicker.removeShardWriter(shardWriter);
+                shardWriter.triggerShardUpdate();
+                for (RecordBatch unsent : shardWriter.closeBuffer()) {
+                    rerouteOrFail(unsent, e);
+                }
+                final DatahubClientException exception = e;
+                return new Runnable() {
+                    @Override
+                    public void run() {
+                        rerouteOrFail(batch, exception);
+                    }
+                };
+            } catch (DatahubClientException e) {
+                if (closed.get() || retry >= config.getAsyncRetryTimes()) {
+                    return failure(batch, e);
+                }
+                if (!shardWriter.tryRetry()) {
+                    LOG.warn("Retry budget exhausted, Project: {}, Topic: {}, ShardId: {}",
+                            projectName, topicName, shardWriter.getShardId());
+                    return failure(batch, e);
+                }
+                long delay = backoff.delayMs(retry++);
+                LOG.warn("Send records failed, will retry, Project: {}, Topic: {}, ShardId: {}, DelayMs: {}, Exception: {}",
+                        projectName, topicName, shardWriter.getShardId(), delay, e.getMessage());
+                try {
+                    // other shards go on while this one backs off
+                    sendExecutor.schedule(this, delay, TimeUnit.MILLISECONDS);
+                    return null;
+                } catch (RejectedExecutionException re) {
+                    return failure(batch, e);
+                }
+            }
+        }
+
+        private void rerouteOrFail(RecordBatch unsent, DatahubClientException e) {
+            if (closed.get()) {
+                failure(unsent, e).run();
+            } else {
+                reroute(unsent, shardWriter);
+            }
+        }
+    }
+
+    private Runnable failure(final RecordBatch batch, final DatahubClientException e) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                LOG.error("Send records failed, Project: {}, Topic: {}, Records: {}, Exception: {}",
+                        projectName, topicName, batch.getRecordCount(), e.getMessage());
+                done(batch.getRecordCount(), batch.getSize());
+                batch.fail(e);
+            }
+        };
     }
 }
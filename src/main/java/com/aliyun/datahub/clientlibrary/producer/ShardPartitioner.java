@@ -0,0 +1,62 @@
+package com.aliyun.datahub.clientlibrary.producer;
+
+import com.aliyun.datahub.client.exception.DatahubClientException;
+import com.aliyun.datahub.client.model.RecordEntry;
+import com.aliyun.datahub.clientlibrary.common.ShardManager;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+
+/**
+ * Route records with the same partition key to the shard owning md5(key),
+ * the same way DataHub routes records written with partition key
+ */
+class ShardPartitioner {
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+    private static final ThreadLocal<MessageDigest> MD5 = new ThreadLocal<MessageDigest>() {
+        @Override
+        protected MessageDigest initialValue() {
+            try {
+                return MessageDigest.getInstance("MD5");
+            } catch (NoSuchAlgorithmException e) {
+                throw new DatahubClientException(e.getMessage());
+            }
+        }
+    };
+
+    private String keyAttribute;
+    private ShardManager shardManager;
+
+    ShardPartitioner(String keyAttribute, ShardManager shardManager) {
+        this.keyAttribute = keyAttribute;
+        this.shardManager = shardManager;
+    }
+
+    /**
+     * @return The shard id owning the partition key of record, or null if the record has no key
+     */
+    String partition(RecordEntry record) {
+        Map<String, String> attributes = record.getAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        String key = attributes.get(keyAttribute);
+        if (key == null) {
+            return null;
+        }
+        // shard meta is rebuilt by shard manager when shards change
+        return shardManager.getShardMeta().findShardId(hashKey(key));
+    }
+
+    static String hashKey(String key) {
+        byte[] digest = MD5.get().digest(key.getBytes(StandardCharsets.UTF_8));
+        char[] result = new char[digest.length * 2];
+        for (int i = 0; i < digest.length; ++i) {
+            result[i * 2] = HEX_DIGITS[(digest[i] >> 4) & 0x0F];
+            result[i * 2 + 1] = HEX_DIGITS[digest[i] & 0x0F];
+        }
+        return new String(result);
+    }
+}
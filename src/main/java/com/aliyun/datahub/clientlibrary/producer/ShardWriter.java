@@ -1,30 +1,275 @@
 package com.aliyun.datahub.clientlibrary.producer;
 
+import com.aliyun.datahub.client.exception.InvalidParameterException;
+import com.aliyun.datahub.client.exception.MalformedRecordException;
 import com.aliyun.datahub.client.model.RecordEntry;
 import com.aliyun.datahub.clientlibrary.common.ClientManager;
 import com.aliyun.datahub.clientlibrary.common.ClientManagerFactory;
 import com.aliyun.datahub.clientlibrary.config.ProducerConfig;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.TreeMap;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ShardWriter {
+    private static final double LATENCY_EWMA_ALPHA = 0.2;
+    private static final int UNHEALTHY_FAILURE_TIMES = 3;
+    private static final long UNHEALTHY_COOL_DOWN_MS = 5000;
+
+    enum AppendResult {
+        APPENDED,
+        BATCH_READY,
+        // the record filled up the current batch, which is ready to send
+        BATCH_FULL,
+        // buffer closed, the record should go to another shard
+        REJECTED
+    }
+
     private ClientManager clientManager;
+    private ProducerConfig config;
+    private RequestPacker packer;
     private String projectName;
     private String topicName;
     private String shardId;
 
+    // records appended by sendAsync, guarded by bufferLock
+    private final Object bufferLock = new Object();
+    private RecordBatch currentBatch;
+    private List<RecordBatch> readyBatches = new ArrayList<>();
+    private boolean bufferClosed = false;
+    private final List<RecordBatch> dispatchedBatches = new ArrayList<>();
+    private long nextDispatchSequence = 0;
+
+    // completions of dispatched batches run in dispatch order, guarded by completionLock
+    private final Object completionLock = new Object();
+    private final TreeMap<Long, Runnable> pendingCompletions = new TreeMap<>();
+    private long nextCompleteSequence = 0;
+
+    // load of this shard, only used to pick shard so races on update are acceptable
+    private final AtomicInteger inFlight = new AtomicInteger(0);
+    private final AtomicInteger consecutiveFailures = new AtomicInteger(0);
+    private volatile double latencyEwmaMs = 0;
+    private volatile long lastFailureTimeMs = 0;
+    private final RetryBudget retryBudget = new RetryBudget();
+
     private final AtomicBoolean closed = new AtomicBoolean(false);
 
-    ShardWriter(String projectName, String topicName, String shardId, ProducerConfig config) {
-        this.clientManager = ClientManagerFactory.getClientManager(projectName, topicName, config.getDatahubConfig());
+    ShardWriter(String projectName, String topicName, String shardId, ProducerConfig config, RequestPacker packer) {
+        this.clientManager = ClientManagerFactory.getClientManager(projectName, topicName,
+                config.getDatahubConfig(), config.getHttpConfig());
+        this.config = config;
+        this.packer = packer;
         this.projectName = projectName;
         this.topicName = topicName;
         this.shardId = shardId;
     }
 
+    String getShardId() {
+        return shardId;
+    }
+
     void write(List<RecordEntry> records) {
-        clientManager.getClient(shardId).putRecordsByShard(projectName, topicName, shardId, records);
+        inFlight.incrementAndGet();
+        long start = System.currentTimeMillis();
+        try {
+            clientManager.getClient(shardId, needCompress(records))
+                    .putRecordsByShard(projectName, topicName, shardId, records);
+            consecutiveFailures.set(0);
+            retryBudget.deposit();
+        } catch (MalformedRecordException | InvalidParameterException e) {
+            // caused by records, not the shard
+            throw e;
+        } catch (RuntimeException e) {
+            consecutiveFailures.incrementAndGet();
+            lastFailureTimeMs = System.currentTimeMillis();
+            throw e;
+        } finally {
+            long elapsed = System.currentTimeMillis() - start;
+            latencyEwmaMs = latencyEwmaMs + LATENCY_EWMA_ALPHA * (elapsed - latencyEwmaMs);
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Tiny requests cost more cpu to compress than they save on network
+     */
+    private boolean needCompress(List<RecordEntry> records) {
+        if (!clientManager.isCompressEnabled()) {
+            return false;
+        }
+        long size = 0;
+        for (RecordEntry record : records) {
+            size += packer.estimate(record);
+            if (size >= config.getMinCompressSize()) {
+                return true;
+            }
+        }
+        return size >= config.getMinCompressSize();
+    }
+
+    /**
+     * Expected wait of a new request: average latency scaled by requests ahead of it
+     */
+    double getLoad() {
+        return (latencyEwmaMs + 1) * (inFlight.get() + 1);
+    }
+
+    /**
+     * @return false if retries of this shard ran out of budget
+     */
+    boolean tryRetry() {
+        return retryBudget.tryWithdraw();
+    }
+
+    /**
+     * Unhealthy after continuous failures, probed again once the failures cool down
+     */
+    boolean isHealthy(long now) {
+        return consecutiveFailures.get() < UNHEALTHY_FAILURE_TIMES
+                || now - lastFailureTimeMs > UNHEALTHY_COOL_DOWN_MS;
+    }
+
+    /**
+     * Append record into the send buffer
+     * @return BATCH_FULL if the record filled up the current batch, BATCH_READY if an earlier batch is ready to send
+     */
+    AppendResult append(RecordEntry record, WriteFuture future, long recordSize) {
+        synchronized (bufferLock) {
+            if (bufferClosed) {
+                return AppendResult.REJECTED;
+            }
+            // a batch is sent as one request, so it never exceeds the request limits
+            int maxCount = Math.min(config.getAsyncBatchCount(), packer.getMaxCount());
+            long maxSize = Math.min(config.getAsyncBatchSize(), packer.getMaxSize());
+            if (currentBatch != null && currentBatch.getSize() + recordSize > maxSize) {
+                readyBatches.add(currentBatch);
+                currentBatch = null;
+            }
+            if (currentBatch == null) {
+                currentBatch = new RecordBatch();
+            }
+            currentBatch.add(record, future, recordSize);
+            if (currentBatch.getRecordCount() >= maxCount || currentBatch.getSize() >= maxSize) {
+                readyBatches.add(currentBatch);
+                currentBatch = null;
+                return AppendResult.BATCH_FULL;
+            }
+            return readyBatches.isEmpty() ? AppendResult.APPENDED : AppendResult.BATCH_READY;
+        }
+    }
+
+    /**
+     * Take the next batch to send if the in flight window of this shard is not full
+     * @param force Take the current batch regardless of linger time.
+     * @return The batch to send, null if nothing to send or too many batches in flight
+     */
+    RecordBatch poll(boolean force) {
+        synchronized (bufferLock) {
+            if (dispatchedBatches.size() >= config.getMaxInFlightRequestsPerShard()) {
+                return null;
+            }
+            moveCurrentBatch(force);
+            if (readyBatches.isEmpty()) {
+                return null;
+            }
+            // batches piled up while the window was full go out in fewer requests
+            readyBatches = packer.coalesce(readyBatches);
+            RecordBatch batch = readyBatches.remove(0);
+            batch.setSequence(nextDispatchSequence++);
+            dispatchedBatches.add(batch);
+            return batch;
+        }
+    }
+
+    /**
+     * Make the current batch ready regardless of linger time, later records go to a new batch
+     * @return Futures of all the records buffered or in flight now, which the flush waits for
+     */
+    List<WriteFuture> markFlush() {
+        synchronized (bufferLock) {
+            moveCurrentBatch(true);
+            List<WriteFuture> futures = new ArrayList<>();
+            for (RecordBatch batch : readyBatches) {
+                futures.addAll(batch.getFutures());
+            }
+            for (RecordBatch batch : dispatchedBatches) {
+                futures.addAll(batch.getFutures());
+            }
+            return futures;
+        }
+    }
+
+    /**
+     * @return Create time of the oldest batch not dispatched yet, -1 if none
+     */
+    long getOldestBatchTimeMs() {
+        synchronized (bufferLock) {
+            if (!readyBatches.isEmpty()) {
+                return readyBatches.get(0).getCreateTimeMs();
+            }
+            return currentBatch == null ? -1 : currentBatch.getCreateTimeMs();
+        }
+    }
+
+    RecordBatch removeOldestBatch() {
+        synchronized (bufferLock) {
+            if (!readyBatches.isEmpty()) {
+                return readyBatches.remove(0);
+            }
+            RecordBatch batch = currentBatch;
+            currentBatch = null;
+            return batch;
+        }
+    }
+
+    /**
+     * Release the window slot of a sent batch and run its completion once all the batches
+     * dispatched before it completed
+     * @param batch The batch returned by poll.
+     * @param completion Completes the futures of the batch.
+     */
+    void finish(RecordBatch batch, Runnable completion) {
+        synchronized (bufferLock) {
+            dispatchedBatches.remove(batch);
+        }
+        synchronized (completionLock) {
+            pendingCompletions.put(batch.getSequence(), completion);
+            while (!pendingCompletions.isEmpty() && pendingCompletions.firstKey() == nextCompleteSequence) {
+                pendingCompletions.pollFirstEntry().getValue().run();
+                ++nextCompleteSequence;
+            }
+        }
+    }
+
+    /**
+     * Stop accepting records and take all the buffered batches
+     */
+    List<RecordBatch> closeBuffer() {
+        synchronized (bufferLock) {
+            bufferClosed = true;
+            moveCurrentBatch(true);
+            if (readyBatches.isEmpty()) {
+                return Collections.emptyList();
+            }
+            List<RecordBatch> result = readyBatches;
+            readyBatches = new ArrayList<>();
+            return result;
+        }
+    }
+
+    private void moveCurrentBatch(boolean force) {
+        if (currentBatch != null && (force ||
+                System.currentTimeMillis() - currentBatch.getCreateTimeMs() >= config.getAsyncLingerTimeMs())) {
+            readyBatches.add(currentBatch);
+            currentBatch = null;
+        }
+    }
+
+    void triggerShardUpdate() {
+        clientManager.getShardManager().triggerUpdate();
     }
 
     void close() {
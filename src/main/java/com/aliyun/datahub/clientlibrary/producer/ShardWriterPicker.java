@@ -0,0 +1,50 @@
+package com.aliyun.datahub.clientlibrary.producer;
+
+import com.aliyun.datahub.clientlibrary.config.ShardPickStrategy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Copy on write, pick is lock free
+ */
+abstract class ShardWriterPicker {
+    private static final ShardWriter[] EMPTY = new ShardWriter[0];
+
+    private volatile ShardWriter[] shardWriters = EMPTY;
+
+    static ShardWriterPicker create(ShardPickStrategy strategy) {
+        if (strategy == ShardPickStrategy.LEAST_LOADED) {
+            return new LeastLoadedPicker();
+        }
+        return new RoundRobinPicker();
+    }
+
+    ShardWriter pick() {
+        ShardWriter[] current = shardWriters;
+        if (current.length == 0) {
+            return null;
+        }
+        return pick(current);
+    }
+
+    synchronized void addShardWriter(ShardWriter shardWriter) {
+        ShardWriter[] current = shardWriters;
+        ShardWriter[] result = Arrays.copyOf(current, current.length + 1);
+        result[current.length] = shardWriter;
+        shardWriters = result;
+    }
+
+    synchronized void removeShardWriter(ShardWriter shardWriter) {
+        List<ShardWriter> result = new ArrayList<>(Arrays.asList(shardWriters));
+        if (result.remove(shardWriter)) {
+            shardWriters = result.toArray(new ShardWriter[result.size()]);
+        }
+    }
+
+    /**
+     * @param shardWriters Not empty snapshot of shard writers, must not be modified.
+     */
+    protected abstract ShardWriter pick(ShardWriter[] shardWriters);
+}
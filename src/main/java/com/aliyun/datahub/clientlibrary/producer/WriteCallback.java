@@ -0,0 +1,13 @@
+package com.aliyun.datahub.clientlibrary.producer;
+
+import com.aliyun.datahub.client.exception.DatahubClientException;
+import com.aliyun.datahub.clientlibrary.models.WriteResult;
+
+public interface WriteCallback {
+    /**
+     * Called by the background sender once the record is written or failed
+     * @param result The write result, null if failed.
+     * @param exception The exception, null if succeeded.
+     */
+    void onCompletion(WriteResult result, DatahubClientException exception);
+}
@@ -0,0 +1,89 @@
+package com.aliyun.datahub.clientlibrary.producer;
+
+import com.aliyun.datahub.client.exception.DatahubClientException;
+import com.aliyun.datahub.clientlibrary.models.WriteResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class WriteFuture implements Future<WriteResult> {
+    private static final Logger LOG = LoggerFactory.getLogger(WriteFuture.class);
+
+    private final WriteCallback callback;
+    private final CountDownLatch done = new CountDownLatch(1);
+    // the first of complete and fail wins, a late one must not overwrite the outcome
+    private final AtomicBoolean finished = new AtomicBoolean(false);
+    private volatile WriteResult result;
+    private volatile DatahubClientException exception;
+
+    WriteFuture(WriteCallback callback) {
+        this.callback = callback;
+    }
+
+    void complete(WriteResult result) {
+        if (finished.compareAndSet(false, true)) {
+            this.result = result;
+            finish();
+        }
+    }
+
+    void fail(DatahubClientException exception) {
+        if (finished.compareAndSet(false, true)) {
+            this.exception = exception;
+            finish();
+        }
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        // record already handed to the sender can not be recalled
+        return false;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return false;
+    }
+
+    @Override
+    public boolean isDone() {
+        return done.getCount() == 0;
+    }
+
+    @Override
+    public WriteResult get() throws InterruptedException, ExecutionException {
+        done.await();
+        return report();
+    }
+
+    @Override
+    public WriteResult get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!done.await(timeout, unit)) {
+            throw new TimeoutException("Write not finished in " + unit.toMillis(timeout) + " ms");
+        }
+        return report();
+    }
+
+    private WriteResult report() throws ExecutionException {
+        if (exception != null) {
+            throw new ExecutionException(exception);
+        }
+        return result;
+    }
+
+    /**
+     * Only run by the winner of finished, once the outcome is set
+     */
+    private void finish() {
+        done.countDown();
+        if (callback != null) {
+            try {
+                callback.onCompletion(result, exception);
+            } catch (Throwable e) {
+                LOG.warn("Write callback failed, Exception: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.aliyun.datahub.clientlibrary.consumer;
 
 import com.aliyun.datahub.client.exception.DatahubClientException;
+import com.aliyun.datahub.client.exception.InvalidParameterException;
 import com.aliyun.datahub.client.exception.ResourceNotFoundException;
 import com.aliyun.datahub.client.exception.SubscriptionOffsetResetException;
 import com.aliyun.datahub.client.model.RecordEntry;
@@ -11,9 +12,15 @@ import org.junit.Assert;
 import org.junit.Test;
 import org.mockserver.verify.VerificationTimes;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 public class ConsumerTest extends MockServer {
 
@@ -189,6 +196,180 @@ public class ConsumerTest extends MockServer {
         consumer.close();
     }
 
+    @Test
+    public void testReadBatch() {
+        mockSuccess(listShardExpectation(2), LIST_SHARD_RESULT);
+        mockSuccess(consumerExpectation("joinGroup", 1), JOIN_GROUP_RESULT);
+        mockSuccess(consumerExpectation("heartbeat", -1), HEARTBEAT_RESULT);
+        mockSuccess(getTopicExpectation(1), GET_TOPIC_RESULT);
+        mockSuccess(offsetExpectation("open", 1), INIT_OFFSET_RESULT);
+        mockSuccess(offsetExpectation("commit", -1), "");
+        mockSuccess(shardExpectation("cursor", 3), GET_CURSOR_RESULT);
+        mockSuccess(shardExpectation("sub", -1), GET_RECORD_RESULT);
+
+        Consumer consumer = getDefaultConsumer();
+        List<RecordEntry> records = consumer.readBatch(100, 10000);
+        Assert.assertFalse(records.isEmpty());
+        Assert.assertTrue(records.size() <= 100);
+
+        try {
+            consumer.readBatch(0, 1000);
+            Assert.fail("throw exception");
+        } catch (InvalidParameterException e) {
+            Assert.assertEquals("Max records must be positive", e.getErrorMessage());
+        }
+        consumer.close();
+    }
+
+    @Test
+    public void testPublisher() {
+        mockSuccess(listShardExpectation(2), LIST_SHARD_RESULT);
+        mockSuccess(consumerExpectation("joinGroup", 1), JOIN_GROUP_RESULT);
+        mockSuccess(consumerExpectation("heartbeat", -1), HEARTBEAT_RESULT);
+        mockSuccess(getTopicExpectation(1), GET_TOPIC_RESULT);
+        mockSuccess(offsetExpectation("open", 1), INIT_OFFSET_RESULT);
+        mockSuccess(offsetExpectation("commit", -1), "");
+        mockSuccess(shardExpectation("cursor", 3), GET_CURSOR_RESULT);
+        mockSuccess(shardExpectation("sub", -1), GET_RECORD_RESULT);
+
+        final List<RecordEntry> records = Collections.synchronizedList(new ArrayList<RecordEntry>());
+        final AtomicBoolean completed = new AtomicBoolean(false);
+        final AtomicReference<RecordSubscription> subscription = new AtomicReference<>();
+        RecordPublisher publisher = new RecordPublisher(getDefaultConsumer());
+        publisher.subscribe(new RecordSubscriber() {
+            @Override
+            public void onSubscribe(RecordSubscription s) {
+                subscription.set(s);
+                s.request(5);
+            }
+
+            @Override
+            public void onNext(RecordEntry record) {
+                records.add(record);
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                Assert.fail(throwable.getMessage());
+            }
+
+            @Override
+            public void onComplete() {
+                completed.set(true);
+            }
+        });
+
+        // never more than requested
+        sleep(5000);
+        Assert.assertEquals(5, records.size());
+        subscription.get().request(10);
+        sleep(2000);
+        Assert.assertEquals(15, records.size());
+
+        publisher.close();
+        sleep(2000);
+        Assert.assertTrue(completed.get());
+    }
+
+    @Test
+    public void testPublisherInvalidRequest() {
+        mockSuccess(listShardExpectation(2), LIST_SHARD_RESULT);
+        mockSuccess(consumerExpectation("joinGroup", 1), JOIN_GROUP_RESULT);
+        mockSuccess(consumerExpectation("heartbeat", -1), HEARTBEAT_RESULT);
+        mockSuccess(getTopicExpectation(1), GET_TOPIC_RESULT);
+        mockSuccess(offsetExpectation("open", 1), INIT_OFFSET_RESULT);
+        mockSuccess(offsetExpectation("commit", -1), "");
+        mockSuccess(shardExpectation("cursor", 3), GET_CURSOR_RESULT);
+        mockSuccess(shardExpectation("sub", -1), GET_RECORD_RESULT);
+
+        final AtomicReference<Throwable> error = new AtomicReference<>();
+        final AtomicBoolean completed = new AtomicBoolean(false);
+        RecordPublisher publisher = new RecordPublisher(getDefaultConsumer());
+        publisher.subscribe(new RecordSubscriber() {
+            @Override
+            public void onSubscribe(RecordSubscription s) {
+                // the invalid request follows a valid one before the publisher starts
+                s.request(5);
+                s.request(0);
+            }
+
+            @Override
+            public void onNext(RecordEntry record) {
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                error.set(throwable);
+            }
+
+            @Override
+            public void onComplete() {
+                completed.set(true);
+            }
+        });
+
+        sleep(2000);
+        Assert.assertTrue(error.get() instanceof InvalidParameterException);
+        Assert.assertFalse(completed.get());
+        publisher.close();
+    }
+
+    @Test
+    public void testParallelConsumer() {
+        mockSuccess(listShardExpectation(2), LIST_SHARD_RESULT);
+        mockSuccess(consumerExpectation("joinGroup", 1), JOIN_GROUP_RESULT);
+        mockSuccess(consumerExpectation("heartbeat", -1), HEARTBEAT_RESULT);
+        mockSuccess(getTopicExpectation(1), GET_TOPIC_RESULT);
+        mockSuccess(offsetExpectation("open", 1), INIT_OFFSET_RESULT);
+        mockSuccess(offsetExpectation("commit", -1), "");
+        mockSuccess(shardExpectation("cursor", 3), GET_CURSOR_RESULT);
+        mockSuccess(shardExpectation("sub", -1), GET_RECORD_RESULT);
+
+        final Map<String, Long> lastSequences = new ConcurrentHashMap<>();
+        final AtomicBoolean outOfOrder = new AtomicBoolean(false);
+        ParallelConsumer parallelConsumer = new ParallelConsumer(getDefaultConsumer(), 4, new RecordHandler() {
+            @Override
+            public void handle(RecordEntry record) {
+                Long last = lastSequences.put(record.getShardId(), record.getSequence());
+                // the mock server returns the same records again and again
+                if (last != null && last >= record.getSequence() && record.getSequence() != 2) {
+                    outOfOrder.set(true);
+                }
+            }
+        });
+        parallelConsumer.start();
+        sleep(12000);
+        parallelConsumer.close();
+
+        Assert.assertNull(parallelConsumer.getException());
+        Assert.assertFalse(lastSequences.isEmpty());
+        Assert.assertFalse(outOfOrder.get());
+        mockServerClient.verify(offsetRequest("commit"), VerificationTimes.atLeast(1));
+    }
+
+    @Test
+    public void testParallelConsumerHandleFailed() {
+        mockSuccess(listShardExpectation(2), LIST_SHARD_RESULT);
+        mockSuccess(consumerExpectation("joinGroup", 1), JOIN_GROUP_RESULT);
+        mockSuccess(consumerExpectation("heartbeat", -1), HEARTBEAT_RESULT);
+        mockSuccess(getTopicExpectation(1), GET_TOPIC_RESULT);
+        mockSuccess(offsetExpectation("open", 1), INIT_OFFSET_RESULT);
+        mockSuccess(offsetExpectation("commit", -1), "");
+        mockSuccess(shardExpectation("cursor", 3), GET_CURSOR_RESULT);
+        mockSuccess(shardExpectation("sub", -1), GET_RECORD_RESULT);
+
+        ParallelConsumer parallelConsumer = new ParallelConsumer(getDefaultConsumer(), 4, new RecordHandler() {
+            @Override
+            public void handle(RecordEntry record) throws Exception {
+                throw new Exception("handle failed");
+            }
+        });
+        parallelConsumer.start();
+        sleep(5000);
+        Assert.assertEquals("handle failed", parallelConsumer.getException().getMessage());
+        parallelConsumer.close();
+    }
+
     @Test
     public void testOffsetReset() {
         mockSuccess(listShardExpectation(2), LIST_SHARD_RESULT);
@@ -1,19 +1,24 @@
 package com.aliyun.datahub.clientlibrary.consumer;
 
 import com.aliyun.datahub.client.exception.DatahubClientException;
+import com.aliyun.datahub.client.exception.InvalidParameterException;
 import com.aliyun.datahub.client.exception.ResourceNotFoundException;
 import com.aliyun.datahub.client.model.RecordEntry;
 import com.aliyun.datahub.clientlibrary.MockServer;
 import com.aliyun.datahub.clientlibrary.config.ConsumerConfig;
+import com.aliyun.datahub.clientlibrary.config.ReadPolicy;
 import com.aliyun.datahub.clientlibrary.models.Offset;
+import com.aliyun.datahub.clientlibrary.models.TupleBatch;
 import org.junit.Assert;
 import org.junit.Test;
 import org.mockserver.verify.VerificationTimes;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class ShardReaderGroupTest extends MockServer {
     private ShardGroupReader getDefaultFetcherGroup() {
@@ -53,6 +58,188 @@ public class ShardReaderGroupTest extends MockServer {
         shardGroupReader.close();
     }
 
+    @Test
+    public void testReadBatch() {
+        mockSuccess(listShardExpectation(2), LIST_SHARD_RESULT);
+        mockSuccess(getTopicExpectation(1), GET_TOPIC_RESULT);
+        mockSuccess(cursorExpectation("SEQUENCE", 3), GET_CURSOR_RESULT);
+        mockSuccess(shardExpectation("sub", -1), GET_RECORD_RESULT);
+
+        ShardGroupReader shardGroupReader = getDefaultFetcherGroup();
+
+        Map<String, Offset> offsetMap = new HashMap<>();
+        offsetMap.put("0", new Offset(1, 1));
+        offsetMap.put("1", new Offset(1, 1));
+        offsetMap.put("2", new Offset(1, 1));
+
+        shardGroupReader.createShardReader(offsetMap);
+
+        List<RecordEntry> result = new ArrayList<>();
+        for (int i = 0; i < 10; ++i) {
+            result = shardGroupReader.readBatch(25);
+            if (result.size() > 0) {
+                break;
+            }
+            sleep(1000);
+        }
+
+        // mocked fetch returns 10 records at a time
+        Assert.assertTrue(result.size() > 1);
+        Assert.assertTrue(result.size() <= 25);
+        shardGroupReader.close();
+    }
+
+    @Test
+    public void testAwaitFetched() throws Exception {
+        mockSuccess(listShardExpectation(2), LIST_SHARD_RESULT);
+        mockSuccess(getTopicExpectation(1), GET_TOPIC_RESULT);
+        mockSuccess(cursorExpectation("SEQUENCE", 3), GET_CURSOR_RESULT);
+        mockSuccess(shardExpectation("sub", -1), GET_RECORD_RESULT);
+
+        ShardGroupReader shardGroupReader = getDefaultFetcherGroup();
+
+        Map<String, Offset> offsetMap = new HashMap<>();
+        offsetMap.put("0", new Offset(1, 1));
+        shardGroupReader.createShardReader(offsetMap);
+
+        long start = System.currentTimeMillis();
+        RecordEntry record = null;
+        while (record == null && System.currentTimeMillis() - start < 10000) {
+            long fetchVersion = shardGroupReader.getFetchVersion();
+            record = shardGroupReader.read();
+            if (record == null) {
+                shardGroupReader.awaitFetched(fetchVersion, 10000);
+            }
+        }
+
+        // woken up by the fetch task instead of polling
+        Assert.assertNotNull(record);
+        Assert.assertTrue(System.currentTimeMillis() - start < 5000);
+        shardGroupReader.close();
+    }
+
+    @Test
+    public void testReadPolicy() {
+        mockSuccess(listShardExpectation(-1), LIST_SHARD_RESULT);
+        mockSuccess(getTopicExpectation(-1), GET_TOPIC_RESULT);
+        mockSuccess(cursorExpectation("SEQUENCE", -1), GET_CURSOR_RESULT);
+        mockSuccess(shardExpectation("sub", -1), GET_RECORD_RESULT);
+
+        Map<String, Integer> weights = new HashMap<>();
+        weights.put("0", 3);
+        for (ReadPolicy policy : ReadPolicy.values()) {
+            ConsumerConfig config = new ConsumerConfig(serverEndpoint, "test_ak", "test_sk", "test_token");
+            config.setReadPolicy(policy);
+            config.setShardWeights(weights);
+            ShardGroupReader shardGroupReader = new ShardGroupReader("test_project", "test_topic", config);
+
+            Map<String, Offset> offsetMap = new HashMap<>();
+            offsetMap.put("0", new Offset(1, 1));
+            offsetMap.put("1", new Offset(1, 1));
+            offsetMap.put("2", new Offset(1, 1));
+            shardGroupReader.createShardReader(offsetMap);
+
+            // every shard is read sooner or later
+            Set<String> shardIds = new HashSet<>();
+            long start = System.currentTimeMillis();
+            while (shardIds.size() < 3 && System.currentTimeMillis() - start < 10000) {
+                long fetchVersion = shardGroupReader.getFetchVersion();
+                RecordEntry record = shardGroupReader.read();
+                if (record == null) {
+                    try {
+                        shardGroupReader.awaitFetched(fetchVersion, 1000);
+                    } catch (InterruptedException e) {
+                        break;
+                    }
+                    continue;
+                }
+                shardIds.add(record.getShardId());
+            }
+            Assert.assertEquals(policy.name(), 3, shardIds.size());
+            shardGroupReader.close();
+        }
+    }
+
+    @Test
+    public void testSingleFetchThread() {
+        mockSuccess(listShardExpectation(-1), LIST_SHARD_RESULT);
+        mockSuccess(getTopicExpectation(1), GET_TOPIC_RESULT);
+        mockSuccess(cursorExpectation("SEQUENCE", -1), GET_CURSOR_RESULT);
+        mockSuccess(shardExpectation("sub", -1), GET_RECORD_RESULT);
+
+        ConsumerConfig config = new ConsumerConfig(serverEndpoint, "test_ak", "test_sk", "test_token");
+        config.setFetchThreads(1);
+        ShardGroupReader shardGroupReader = new ShardGroupReader("test_project", "test_topic", config);
+
+        Map<String, Offset> offsetMap = new HashMap<>();
+        for (int i = 0; i < 4; ++i) {
+            offsetMap.put(String.valueOf(i), new Offset(1, 1));
+        }
+        shardGroupReader.createShardReader(offsetMap);
+
+        // fetch tasks of all shards queue for one thread instead of being rejected
+        Set<String> shardIds = new HashSet<>();
+        long start = System.currentTimeMillis();
+        while (shardIds.size() < 4 && System.currentTimeMillis() - start < 10000) {
+            for (RecordEntry record : shardGroupReader.readBatch(100)) {
+                shardIds.add(record.getShardId());
+            }
+            sleep(100);
+        }
+        Assert.assertEquals(4, shardIds.size());
+        shardGroupReader.close();
+    }
+
+    @Test
+    public void testReadTupleBatches() {
+        mockSuccess(listShardExpectation(2), LIST_SHARD_RESULT);
+        mockSuccess(getTopicExpectation(1), GET_TOPIC_RESULT);
+        mockSuccess(cursorExpectation("SEQUENCE", 3), GET_CURSOR_RESULT);
+        mockSuccess(shardExpectation("sub", -1), GET_RECORD_RESULT);
+
+        ConsumerConfig config = new ConsumerConfig(serverEndpoint, "test_ak", "test_sk", "test_token");
+        config.setColumnarRead(true);
+        ShardGroupReader shardGroupReader = new ShardGroupReader("test_project", "test_topic", config);
+
+        Map<String, Offset> offsetMap = new HashMap<>();
+        offsetMap.put("0", new Offset(1, 1));
+        offsetMap.put("1", new Offset(1, 1));
+        shardGroupReader.createShardReader(offsetMap);
+
+        List<TupleBatch> result = new ArrayList<>();
+        for (int i = 0; i < 10 && result.isEmpty(); ++i) {
+            sleep(1000);
+            result = shardGroupReader.readTupleBatches(25);
+        }
+
+        // each response of 10 records is a batch, whole batches up to max records
+        Assert.assertEquals(2, result.size());
+        TupleBatch batch = result.get(0);
+        Assert.assertEquals(10, batch.size());
+        Assert.assertEquals(2, batch.getSequence(0));
+        Assert.assertEquals(11, batch.getSequence(9));
+        int f1 = batch.getFieldIndex("f1");
+        int f2 = batch.getFieldIndex("f2");
+        Assert.assertEquals("1465999335123456", batch.getString(f1, 0));
+        Assert.assertEquals(30, batch.getLong(f2, 9));
+        Assert.assertEquals(10, batch.getLongColumn(f2).length);
+        Assert.assertFalse(batch.isNull(f2, 0));
+
+        try {
+            batch.getDoubleColumn(f2);
+            Assert.fail("throw exception");
+        } catch (InvalidParameterException e) {
+            Assert.assertEquals("Field type is not DOUBLE, field: f2", e.getErrorMessage());
+        }
+        try {
+            shardGroupReader.readBatch(10);
+            Assert.fail("throw exception");
+        } catch (InvalidParameterException e) {
+            Assert.assertEquals("Batch read is enabled, read batches instead", e.getErrorMessage());
+        }
+        shardGroupReader.close();
+    }
+
     @Test
     public void testClosed() {
         mockSuccess(listShardExpectation(2), LIST_SHARD_RESULT);
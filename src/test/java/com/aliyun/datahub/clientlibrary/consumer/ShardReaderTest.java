@@ -1,16 +1,26 @@
 package com.aliyun.datahub.clientlibrary.consumer;
 
+import com.aliyun.datahub.client.auth.AliyunAccount;
 import com.aliyun.datahub.client.exception.DatahubClientException;
+import com.aliyun.datahub.client.exception.InvalidParameterException;
 import com.aliyun.datahub.client.exception.ResourceNotFoundException;
+import com.aliyun.datahub.client.model.BlobRecordData;
 import com.aliyun.datahub.client.model.RecordEntry;
 import com.aliyun.datahub.clientlibrary.MockServer;
+import com.aliyun.datahub.clientlibrary.common.BufferPool;
+import com.aliyun.datahub.clientlibrary.common.Constants;
 import com.aliyun.datahub.clientlibrary.config.ConsumerConfig;
+import com.aliyun.datahub.clientlibrary.interceptor.EmptyInterceptor;
+import com.aliyun.datahub.clientlibrary.models.BlobBatch;
 import com.aliyun.datahub.clientlibrary.models.Offset;
 import com.aliyun.datahub.clientlibrary.models.TopicInfo;
 import org.junit.Assert;
 import org.junit.Test;
 import org.mockserver.verify.VerificationTimes;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -84,6 +94,46 @@ public class ShardReaderTest extends MockServer {
         executor.shutdownNow();
     }
 
+    @Test
+    public void testReadEndWithOverflow() {
+        ExecutorService executor = Executors.newCachedThreadPool();
+
+        mockSuccess(listShardExpectation(2), LIST_SHARD_RESULT);
+        mockSuccess(cursorExpectation("SEQUENCE", 1), GET_CURSOR_RESULT);
+        mockSuccess(shardExpectation("sub", 1), GET_RECORD_RESULT);
+        mockFail(shardExpectation("sub", -1), 400, SHARD_SEALED);
+
+        // the only response grows past the queue capacity, the rest is left for the reader to queue
+        final int times = 500;
+        ConsumerConfig config = new ConsumerConfig(serverEndpoint,
+                new AliyunAccount("test_ak", "test_sk", "test_token"), new EmptyInterceptor() {
+            @Override
+            public List<RecordEntry> afterRead(List<RecordEntry> records) {
+                List<RecordEntry> result = new ArrayList<>();
+                for (int i = 0; i < times; ++i) {
+                    result.addAll(records);
+                }
+                return result;
+            }
+        }) {
+        };
+        config.setAdaptiveFetchSize(false);
+        config.setFetchSize(Constants.MIN_FETCH_SIZE);
+        ShardReader shardReader = new ShardReader(new TopicInfo("test_project", "test_topic", genRecordSchema()),
+                "0", new Offset(1, 1), config, executor);
+
+        List<RecordEntry> records = new ArrayList<>();
+        for (int i = 0; i < 100 && !shardReader.isReadEnd(); ++i) {
+            if (shardReader.read(1000, records) == 0) {
+                sleep(100);
+            }
+        }
+        Assert.assertTrue(shardReader.isReadEnd());
+        Assert.assertEquals(10 * times, records.size());
+        shardReader.close();
+        executor.shutdownNow();
+    }
+
     @Test
     public void testInvalidShard() {
         ExecutorService executor = Executors.newCachedThreadPool();
@@ -231,4 +281,176 @@ public class ShardReaderTest extends MockServer {
         shardReader.close();
         executor.shutdownNow();
     }
+
+    @Test
+    public void testFetchBufferLimit() {
+        ExecutorService executor = Executors.newCachedThreadPool();
+
+        mockSuccess(listShardExpectation(2), LIST_SHARD_RESULT);
+        mockSuccess(cursorExpectation("SEQUENCE", 1), GET_CURSOR_RESULT);
+        mockSuccess(shardExpectation("sub", -1), GET_RECORD_RESULT);
+
+        // any response is over the limit, so only one is fetched until read
+        FetchMemory fetchMemory = new FetchMemory(1);
+        ShardReader shardReader = new ShardReader(new TopicInfo("test_project", "test_topic", genRecordSchema()),
+                "0", new Offset(1, 1), new ConsumerConfig(serverEndpoint, "test_ak", "test_sk", "test_token"),
+                executor, new FetchNotifier(), fetchMemory);
+        shardReader.prefetch();
+        for (int i = 0; i < 100 && !shardReader.hasSomethingToRead(); ++i) {
+            sleep(100);
+        }
+        sleep(1000);
+        mockServerClient.verify(shardRequest("sub"), VerificationTimes.once());
+        Assert.assertTrue(fetchMemory.getUsed() > 0);
+        Assert.assertEquals(fetchMemory.getUsed(), shardReader.getBufferedBytes());
+
+        List<RecordEntry> records = new ArrayList<>();
+        Assert.assertEquals(10, shardReader.read(100, records));
+        Assert.assertEquals(0, shardReader.getBufferedBytes());
+
+        // drained, fetch resumes
+        for (int i = 0; i < 100 && !shardReader.hasSomethingToRead(); ++i) {
+            sleep(100);
+        }
+        mockServerClient.verify(shardRequest("sub"), VerificationTimes.exactly(2));
+
+        shardReader.close();
+        Assert.assertEquals(0, fetchMemory.getUsed());
+        Assert.assertEquals(0, shardReader.getBufferedBytes());
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testAdaptiveFetchSize() {
+        ExecutorService executor = Executors.newCachedThreadPool();
+
+        mockSuccess(listShardExpectation(2), LIST_SHARD_RESULT);
+        mockSuccess(cursorExpectation("SEQUENCE", -1), GET_CURSOR_RESULT);
+        mockSuccess(shardExpectation("sub", -1), GET_RECORD_RESULT);
+
+        // 10 records for 1000 requested, sparse responses shrink to the min fetch size
+        ShardReader shardReader = getDefaultFetcher(executor);
+        Assert.assertEquals(1000, shardReader.getFetchSize());
+        fetchResult(shardReader);
+        for (int i = 0; i < 100 && shardReader.getFetchSize() > Constants.MIN_FETCH_SIZE; ++i) {
+            sleep(100);
+        }
+        Assert.assertEquals(Constants.MIN_FETCH_SIZE, shardReader.getFetchSize());
+        shardReader.close();
+
+        ConsumerConfig config = new ConsumerConfig(serverEndpoint, "test_ak", "test_sk", "test_token");
+        config.setAdaptiveFetchSize(false);
+        shardReader = new ShardReader(new TopicInfo("test_project", "test_topic", genRecordSchema()),
+                "0", new Offset(1, 1), config, executor);
+        fetchResult(shardReader);
+        Assert.assertEquals(1000, shardReader.getFetchSize());
+        shardReader.close();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testBlobBatch() {
+        List<RecordEntry> records = new ArrayList<>();
+        for (String data : new String[]{"hello", "", "datahub"}) {
+            RecordEntry record = new RecordEntry();
+            record.setRecordData(new BlobRecordData(data.getBytes()));
+            records.add(record);
+        }
+
+        BlobBatch batch = BlobBatch.of("0", records, new BufferPool(true, 1024 * 1024));
+        Assert.assertEquals(3, batch.size());
+        Assert.assertEquals(5, batch.getDataSize(0));
+        Assert.assertEquals(0, batch.getDataSize(1));
+        // the pooled buffer is counted, not only the data in it
+        Assert.assertTrue(batch.getByteSize() >= 4096);
+        ByteBuffer data = batch.getData(2);
+        byte[] bytes = new byte[data.remaining()];
+        data.get(bytes);
+        Assert.assertEquals("datahub", new String(bytes));
+        Assert.assertTrue(data.isReadOnly());
+
+        batch.release();
+        try {
+            batch.getData(0);
+            Assert.fail("throw exception");
+        } catch (InvalidParameterException e) {
+            Assert.assertEquals("This blob batch has already been released", e.getErrorMessage());
+        }
+    }
+
+    @Test
+    public void testFetchMemoryPooledBuffers() {
+        FetchMemory fetchMemory = new FetchMemory(1024 * 1024);
+        BufferPool pool = fetchMemory.getBufferPool();
+        List<ByteBuffer> buffers = new ArrayList<>();
+        for (int i = 0; i < 4; ++i) {
+            buffers.add(pool.acquire(256 * 1024));
+        }
+        for (ByteBuffer buffer : buffers) {
+            pool.release(buffer);
+        }
+        Assert.assertEquals(1024 * 1024, pool.getPooledBytes());
+
+        // idle buffers share the budget with records not read, and give way to them
+        fetchMemory.add(768 * 1024);
+        Assert.assertTrue(fetchMemory.isAvailable());
+        Assert.assertTrue(fetchMemory.getUsed() + pool.getPooledBytes() <= fetchMemory.getLimit());
+        fetchMemory.add(256 * 1024);
+        Assert.assertFalse(fetchMemory.isAvailable());
+    }
+
+    @Test
+    public void testFetchedQueue() throws InterruptedException {
+        final SpscRingBuffer<Integer> queue = new SpscRingBuffer<>(100);
+        Assert.assertEquals(128, queue.capacity());
+        final int total = 100000;
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                int next = 0;
+                while (next < total) {
+                    List<Integer> batch = new ArrayList<>();
+                    for (int i = 0; i < 50 && next + i < total; ++i) {
+                        batch.add(next + i);
+                    }
+                    int offered = 0;
+                    while (offered < batch.size()) {
+                        int count = queue.offer(batch, offered);
+                        if (count == 0) {
+                            Thread.yield();
+                        }
+                        offered += count;
+                    }
+                    next += batch.size();
+                }
+            }
+        });
+        producer.start();
+
+        int expected = 0;
+        List<Integer> out = new ArrayList<>();
+        while (expected < total) {
+            if (expected % 2 == 0) {
+                Integer value = queue.poll();
+                if (value == null) {
+                    Thread.yield();
+                } else {
+                    Assert.assertEquals(expected++, value.intValue());
+                }
+            } else {
+                out.clear();
+                if (queue.drainTo(out, 30) == 0) {
+                    Thread.yield();
+                }
+                for (Integer value : out) {
+                    Assert.assertEquals(expected++, value.intValue());
+                }
+            }
+            Assert.assertTrue(queue.size() <= queue.capacity());
+        }
+        producer.join();
+        Assert.assertTrue(queue.isEmpty());
+        Assert.assertNull(queue.peek());
+        Assert.assertEquals(queue.capacity(), queue.remainingCapacity());
+    }
 }
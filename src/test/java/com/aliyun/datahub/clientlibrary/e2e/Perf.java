@@ -5,22 +5,30 @@ import com.aliyun.datahub.client.DatahubClientBuilder;
 import com.aliyun.datahub.client.auth.AliyunAccount;
 import com.aliyun.datahub.client.common.DatahubConfig;
 import com.aliyun.datahub.client.exception.DatahubClientException;
+import com.aliyun.datahub.client.http.HttpConfig;
 import com.aliyun.datahub.client.model.*;
 import com.aliyun.datahub.clientlibrary.config.ConsumerConfig;
 import com.aliyun.datahub.clientlibrary.config.ProducerConfig;
+import com.aliyun.datahub.clientlibrary.config.ReadPolicy;
 import com.aliyun.datahub.clientlibrary.consumer.Consumer;
 import com.aliyun.datahub.clientlibrary.e2e.common.Configure;
 import com.aliyun.datahub.clientlibrary.e2e.common.Constant;
 import com.aliyun.datahub.clientlibrary.producer.Producer;
 
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class Perf {
     private static final String TEST_ENDPOINT = Configure.getString(Constant.DATAHUB_ENDPOINT);
     private static final String TEST_PROJECT = "1111";
     private static final String TEST_TOPIC = "perf";
+    private static final String TEST_BLOB_TOPIC = "perf_blob";
     private static final String TEST_AK = Configure.getString(Constant.DATAHUB_ACCESS_ID);
     private static final String TEST_SK = Configure.getString(Constant.DATAHUB_ACCESS_KEY);
     private static final DatahubConfig datahubConfig = new DatahubConfig(TEST_ENDPOINT, new AliyunAccount(TEST_AK, TEST_SK), true);
@@ -67,6 +75,176 @@ public class Perf {
         return result;
     }
 
+    static List<RecordEntry> genBlobRecords(int size) {
+        List<RecordEntry> result = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        while (sb.length() < size) {
+            // log like payload, compressible as real data
+            sb.append("2016-01-01 00:00:00 INFO request done, id: ").append(sb.length()).append('\n');
+        }
+        byte[] data = sb.substring(0, size).getBytes();
+        for (int i = 0; i < 1000; ++i) {
+            RecordEntry entry = new RecordEntry();
+            entry.setRecordData(new BlobRecordData(data));
+            result.add(entry);
+        }
+        return result;
+    }
+
+    static void compressBenchmark(String topicName, List<RecordEntry> records, HttpConfig.CompressType compressType) {
+        ProducerConfig config = new ProducerConfig(TEST_ENDPOINT, TEST_AK, TEST_SK);
+        config.setCompressType(compressType);
+        Producer producer = new Producer(TEST_PROJECT, topicName, config);
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+
+        int rounds = 20;
+        long cpuStart = bean.getCurrentThreadCpuTime();
+        long start = System.currentTimeMillis();
+        for (int i = 0; i < rounds; ++i) {
+            producer.send(records, 3);
+        }
+        long elapsed = Math.max(1, System.currentTimeMillis() - start);
+        long cpuMs = (bean.getCurrentThreadCpuTime() - cpuStart) / 1000000;
+        producer.close();
+
+        System.out.println("topic: " + topicName + ", compress: " + compressType
+                + ", rps: " + rounds * records.size() * 1000L / elapsed
+                + ", cpu ms per 1000 records: " + cpuMs * 1000 / (rounds * records.size()));
+    }
+
+    static void compressBenchmark() {
+        RecordSchema schema = client.getTopic(TEST_PROJECT, TEST_TOPIC).getRecordSchema();
+        HttpConfig.CompressType[] compressTypes = {null, HttpConfig.CompressType.LZ4, HttpConfig.CompressType.DEFLATE};
+        for (HttpConfig.CompressType compressType : compressTypes) {
+            compressBenchmark(TEST_TOPIC, genTupleRecords(schema), compressType);
+            compressBenchmark(TEST_BLOB_TOPIC, genBlobRecords(1024), compressType);
+        }
+    }
+
+    /**
+     * Read all shards with platform threads then virtual threads, report throughput and the peak count
+     * of platform threads, virtual threads are used only on java 21 or later
+     */
+    static void fetchThreadsBenchmark() {
+        ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+        for (boolean virtual : new boolean[]{false, true}) {
+            String subId = client.createSubscription(TEST_PROJECT, TEST_TOPIC, "fetch threads perf").getSubId();
+            ConsumerConfig config = new ConsumerConfig(TEST_ENDPOINT, TEST_AK, TEST_SK);
+            config.setVirtualThreads(virtual);
+            config.setAutoCommit(false);
+            Consumer consumer = new Consumer(TEST_PROJECT, TEST_TOPIC, subId, config);
+            threadBean.resetPeakThreadCount();
+
+            long total = 0;
+            long start = System.currentTimeMillis();
+            while (System.currentTimeMillis() - start < 30000) {
+                total += consumer.readBatch(1000, 1000).size();
+            }
+            long elapsed = System.currentTimeMillis() - start;
+
+            System.out.println("virtual threads: " + virtual + ", rps: " + total * 1000 / elapsed
+                    + ", peak platform threads: " + threadBean.getPeakThreadCount());
+            consumer.close();
+            client.deleteSubscription(TEST_PROJECT, TEST_TOPIC, subId);
+        }
+    }
+
+    /**
+     * Write a backlog into shard 0 only, then read with each policy while the other shards
+     * receive a trickle, and report throughput and the spread of per shard latency
+     */
+    static void readPolicyBenchmark() {
+        GetTopicResult result = client.getTopic(TEST_PROJECT, TEST_TOPIC);
+        RecordSchema schema = result.getRecordSchema();
+        int shardCount = result.getShardCount();
+        for (int i = 0; i < 50; ++i) {
+            client.putRecordsByShard(TEST_PROJECT, TEST_TOPIC, "0", genTupleRecords(schema));
+        }
+
+        for (ReadPolicy policy : ReadPolicy.values()) {
+            String subId = client.createSubscription(TEST_PROJECT, TEST_TOPIC, "read policy perf").getSubId();
+            ConsumerConfig config = new ConsumerConfig(TEST_ENDPOINT, TEST_AK, TEST_SK);
+            config.setReadPolicy(policy);
+            config.setAutoCommit(false);
+            Consumer consumer = new Consumer(TEST_PROJECT, TEST_TOPIC, subId, config);
+
+            Map<String, long[]> latencies = new HashMap<>();
+            long total = 0;
+            long start = System.currentTimeMillis();
+            while (System.currentTimeMillis() - start < 30000) {
+                String trickleShard = String.valueOf(1 + total % Math.max(shardCount - 1, 1));
+                client.putRecordsByShard(TEST_PROJECT, TEST_TOPIC, trickleShard, genTupleRecords(schema).subList(0, 1));
+                for (RecordEntry record : consumer.readBatch(1000, 1000)) {
+                    long[] latency = latencies.get(record.getShardId());
+                    if (latency == null) {
+                        latency = new long[2];
+                        latencies.put(record.getShardId(), latency);
+                    }
+                    latency[0] += System.currentTimeMillis() - record.getSystemTime();
+                    ++latency[1];
+                    ++total;
+                }
+            }
+            long elapsed = System.currentTimeMillis() - start;
+
+            long minAvg = Long.MAX_VALUE;
+            long maxAvg = 0;
+            for (long[] latency : latencies.values()) {
+                long avg = latency[0] / latency[1];
+                minAvg = Math.min(minAvg, avg);
+                maxAvg = Math.max(maxAvg, avg);
+            }
+            System.out.println("policy: " + policy + ", rps: " + total * 1000 / elapsed
+                    + ", shards read: " + latencies.size() + ", avg latency ms min: " + minAvg + ", max: " + maxAvg);
+            consumer.close();
+            client.deleteSubscription(TEST_PROJECT, TEST_TOPIC, subId);
+        }
+    }
+
+    /**
+     * Send records by sendAsync with fresh records then pooled ones, report throughput, bytes allocated
+     * by the sending thread per record and gc count
+     */
+    static void recordPoolBenchmark() {
+        RecordSchema schema = client.getTopic(TEST_PROJECT, TEST_TOPIC).getRecordSchema();
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        final int total = 1000000;
+        TupleRecordData template = (TupleRecordData) genTupleData(schema).getRecordData();
+        for (int poolSize : new int[]{0, 16384}) {
+            ProducerConfig config = new ProducerConfig(TEST_ENDPOINT, TEST_AK, TEST_SK);
+            config.setRecordPoolSize(poolSize);
+            Producer producer = new Producer(TEST_PROJECT, TEST_TOPIC, config);
+
+            long gcCount = getGcCount();
+            long allocated = threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+            long start = System.currentTimeMillis();
+            for (int i = 0; i < total; ++i) {
+                RecordEntry record = producer.newRecord();
+                TupleRecordData data = (TupleRecordData) record.getRecordData();
+                for (int j = 0; j < schema.getFields().size(); ++j) {
+                    data.setField(j, template.getField(j));
+                }
+                producer.sendAsync(record);
+            }
+            producer.flush();
+            long elapsed = System.currentTimeMillis() - start;
+            allocated = threadBean.getThreadAllocatedBytes(Thread.currentThread().getId()) - allocated;
+
+            System.out.println("record pool size: " + poolSize + ", rps: " + total * 1000L / elapsed
+                    + ", bytes allocated per record: " + allocated / total
+                    + ", gc count: " + (getGcCount() - gcCount));
+            producer.close();
+        }
+    }
+
+    private static long getGcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(bean.getCollectionCount(), 0);
+        }
+        return count;
+    }
+
     static void produce() {
         GetTopicResult result = client.getTopic(TEST_PROJECT, TEST_TOPIC);
         final RecordSchema schema = result.getRecordSchema();
@@ -96,6 +274,10 @@ public class Perf {
 
     public static void main(String[] args) {
         //produce();
+        //compressBenchmark();
+        //readPolicyBenchmark();
+        //fetchThreadsBenchmark();
+        //recordPoolBenchmark();
         String subId = client.createSubscription(TEST_PROJECT, TEST_TOPIC, "comment").getSubId();
 
         ConsumerConfig config = new ConsumerConfig(TEST_ENDPOINT, TEST_AK, TEST_SK);
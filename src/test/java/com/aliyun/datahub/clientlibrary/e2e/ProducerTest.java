@@ -6,12 +6,14 @@ import com.aliyun.datahub.client.exception.DatahubClientException;
 import com.aliyun.datahub.client.exception.InvalidParameterException;
 import com.aliyun.datahub.client.exception.MalformedRecordException;
 import com.aliyun.datahub.client.model.*;
+import com.aliyun.datahub.clientlibrary.models.WriteResult;
 import com.aliyun.datahub.clientlibrary.producer.Producer;
 import org.junit.*;
 
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Future;
 
 public class ProducerTest extends BaseTest {
     private final static int SHARD_COUNT = 4;
@@ -79,6 +81,42 @@ public class ProducerTest extends BaseTest {
         }
     }
 
+    @Test
+    public void testSendAsync() throws Exception {
+        Producer producer = new Producer(TEST_PROJECT_NAME, tupleTopicName, producerConfig);
+        List<Future<WriteResult>> futures = new ArrayList<>();
+        for (int i = 0; i < SHARD_COUNT * 5; ++i) {
+            for (RecordEntry record : genTupleRecords(SHARD_COUNT, schema)) {
+                futures.add(producer.sendAsync(record));
+            }
+        }
+        producer.flush();
+        for (Future<WriteResult> future : futures) {
+            Assert.assertTrue(future.isDone());
+            Assert.assertNotNull(future.get().getShardId());
+        }
+        producer.close();
+
+        for (int i = 0; i < SHARD_COUNT; ++i) {
+            String shardId = "" + i;
+            String cursor = client.getCursor(TEST_PROJECT_NAME, tupleTopicName, shardId, CursorType.OLDEST).getCursor();
+            GetRecordsResult result = client.getRecords(TEST_PROJECT_NAME, tupleTopicName, shardId, schema, cursor, 1000);
+            Assert.assertEquals(1000, result.getRecords().size());
+        }
+    }
+
+    @Test
+    public void testSendAsyncClosed() {
+        Producer producer = new Producer(TEST_PROJECT_NAME, blobTopicName, producerConfig);
+        producer.close();
+        try {
+            producer.sendAsync(genBlobData("0"));
+            Assert.fail("throw exception");
+        } catch (DatahubClientException e) {
+            Assert.assertEquals("This producer has already been closed", e.getErrorMessage());
+        }
+    }
+
     @Test
     public void testSendWithShardList() {
         Producer producer = new Producer(TEST_PROJECT_NAME, blobTopicName, Arrays.asList("0", "1"), producerConfig);
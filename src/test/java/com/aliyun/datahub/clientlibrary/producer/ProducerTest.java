@@ -0,0 +1,543 @@
+package com.aliyun.datahub.clientlibrary.producer;
+
+import com.aliyun.datahub.client.exception.DatahubClientException;
+import com.aliyun.datahub.client.model.RecordEntry;
+import com.aliyun.datahub.client.model.TupleRecordData;
+import com.aliyun.datahub.clientlibrary.MockServer;
+import com.aliyun.datahub.clientlibrary.config.BufferFullPolicy;
+import com.aliyun.datahub.clientlibrary.config.ProducerConfig;
+import com.aliyun.datahub.clientlibrary.config.ShardPickStrategy;
+import com.aliyun.datahub.clientlibrary.models.WriteResult;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockserver.matchers.MatchType;
+import org.mockserver.verify.VerificationTimes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockserver.model.HttpRequest.request;
+import static org.mockserver.model.JsonBody.json;
+
+public class ProducerTest extends MockServer {
+    private static final String PUT_RECORDS_RESULT = "{}";
+    private static final int THREAD_COUNT = 8;
+
+    private ProducerConfig getDefaultConfig() {
+        ProducerConfig config = new ProducerConfig(serverEndpoint, "test_ak", "test_sk", "test_token");
+        // mock server only speaks json
+        config.getDatahubConfig().setEnableBinary(false);
+        return config;
+    }
+
+    private List<RecordEntry> genRecords(int count) {
+        List<RecordEntry> records = new ArrayList<>();
+        for (int i = 0; i < count; ++i) {
+            TupleRecordData data = new TupleRecordData(genRecordSchema());
+            data.setField("f1", "test");
+            data.setField("f2", (long) i);
+            RecordEntry record = new RecordEntry();
+            record.setRecordData(data);
+            records.add(record);
+        }
+        return records;
+    }
+
+    private String getOwnerShard(String key) {
+        // hash ranges of LIST_SHARD_RESULT
+        String hashKey = ShardPartitioner.hashKey(key);
+        if (hashKey.compareTo("3FFFFFFFFFFFFFFF3FFFFFFFFFFFFFFF") < 0) {
+            return "0";
+        } else if (hashKey.compareTo("7FFFFFFFFFFFFFFE7FFFFFFFFFFFFFFE") < 0) {
+            return "1";
+        } else if (hashKey.compareTo("BFFFFFFFFFFFFFFDBFFFFFFFFFFFFFFD") < 0) {
+            return "2";
+        }
+        return "3";
+    }
+
+    private void runInThreads(final Runnable runnable) {
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < THREAD_COUNT; ++i) {
+            threads.add(new Thread(runnable));
+            threads.get(i).start();
+        }
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    @Test
+    public void testMultiThreadSend() {
+        mockSuccess(listShardExpectation(-1), LIST_SHARD_RESULT);
+        mockSuccess(getTopicExpectation(-1), GET_TOPIC_RESULT);
+        mockSuccess(shardExpectation("pub", -1), PUT_RECORDS_RESULT);
+
+        final int rounds = 100;
+        final Producer producer = new Producer("test_project", "test_topic", getDefaultConfig());
+        final AtomicInteger failed = new AtomicInteger(0);
+
+        runInThreads(new Runnable() {
+            @Override
+            public void run() {
+                List<RecordEntry> records = genRecords(10);
+                for (int i = 0; i < rounds; ++i) {
+                    try {
+                        producer.send(records, 1);
+                    } catch (DatahubClientException e) {
+                        failed.incrementAndGet();
+                    }
+                }
+            }
+        });
+        Assert.assertEquals(0, failed.get());
+        mockServerClient.verify(shardRequest("pub"), VerificationTimes.exactly(THREAD_COUNT * rounds));
+        producer.close();
+    }
+
+    @Test
+    public void testMultiThreadSendAsync() throws Exception {
+        mockSuccess(listShardExpectation(-1), LIST_SHARD_RESULT);
+        mockSuccess(getTopicExpectation(-1), GET_TOPIC_RESULT);
+        mockSuccess(shardExpectation("pub", -1), PUT_RECORDS_RESULT);
+
+        final int recordCount = 1000;
+        ProducerConfig config = getDefaultConfig();
+        config.setAsyncBatchCount(100);
+        final Producer producer = new Producer("test_project", "test_topic", config);
+        final List<Future<WriteResult>> futures = new ArrayList<>();
+
+        runInThreads(new Runnable() {
+            @Override
+            public void run() {
+                List<Future<WriteResult>> result = new ArrayList<>();
+                for (RecordEntry record : genRecords(recordCount)) {
+                    result.add(producer.sendAsync(record));
+                }
+                synchronized (futures) {
+                    futures.addAll(result);
+                }
+            }
+        });
+        producer.flush();
+
+        Assert.assertEquals(0, producer.getBufferedRecordCount());
+        Assert.assertEquals(0, producer.getBufferedSize());
+        Assert.assertEquals(THREAD_COUNT * recordCount, futures.size());
+        for (Future<WriteResult> future : futures) {
+            Assert.assertTrue(future.isDone());
+            Assert.assertNotNull(future.get().getShardId());
+        }
+        mockServerClient.verify(shardRequest("pub"), VerificationTimes.atLeast(THREAD_COUNT * recordCount / 100));
+        producer.close();
+    }
+
+    @Test
+    public void testSendAsyncInFlight() throws Exception {
+        mockSuccess(listShardExpectation(-1), LIST_SHARD_RESULT);
+        mockSuccess(getTopicExpectation(-1), GET_TOPIC_RESULT);
+        mockSuccess(shardExpectation("pub", -1), PUT_RECORDS_RESULT);
+
+        final int recordCount = 2000;
+        ProducerConfig config = getDefaultConfig();
+        config.setAsyncBatchCount(10);
+        config.setMaxInFlightRequestsPerShard(4);
+        Producer producer = new Producer("test_project", "test_topic", config);
+
+        // callbacks of one shard complete in send order
+        final Map<String, List<Integer>> completed = new HashMap<>();
+        List<Future<WriteResult>> futures = new ArrayList<>();
+        List<RecordEntry> records = genRecords(recordCount);
+        for (int i = 0; i < recordCount; ++i) {
+            final int index = i;
+            futures.add(producer.sendAsync(records.get(i), new WriteCallback() {
+                @Override
+                public void onCompletion(WriteResult result, DatahubClientException exception) {
+                    Assert.assertNull(exception);
+                    synchronized (completed) {
+                        List<Integer> indexes = completed.get(result.getShardId());
+                        if (indexes == null) {
+                            indexes = new ArrayList<>();
+                            completed.put(result.getShardId(), indexes);
+                        }
+                        indexes.add(index);
+                    }
+                }
+            }));
+        }
+        producer.flush();
+
+        for (Future<WriteResult> future : futures) {
+            Assert.assertTrue(future.isDone());
+            Assert.assertNotNull(future.get().getShardId());
+        }
+        int total = 0;
+        for (List<Integer> indexes : completed.values()) {
+            for (int i = 1; i < indexes.size(); ++i) {
+                Assert.assertTrue(indexes.get(i - 1) < indexes.get(i));
+            }
+            total += indexes.size();
+        }
+        Assert.assertEquals(recordCount, total);
+        producer.close();
+    }
+
+    private List<Future<WriteResult>> fillBuffer(BufferFullPolicy policy) {
+        ProducerConfig config = getDefaultConfig();
+        // nothing is sent until the buffer is full
+        config.setAsyncBatchCount(10000);
+        config.setAsyncBatchSize(4 * 1024 * 1024);
+        config.setMaxRequestRecordCount(10000);
+        config.setAsyncLingerTimeMs(60000);
+        config.setBufferSize(1024 * 1024);
+        config.setBufferFullPolicy(policy);
+        Producer producer = new Producer("test_project", "test_topic", config);
+
+        List<Future<WriteResult>> futures = new ArrayList<>();
+        for (RecordEntry record : genRecords(50000)) {
+            futures.add(producer.sendAsync(record));
+        }
+        Assert.assertTrue(producer.getBufferUsage() <= 1.0);
+        Assert.assertTrue(producer.getBufferUsage() > 0.9);
+        producer.close();
+        return futures;
+    }
+
+    private String getErrorMessage(Future<WriteResult> future) throws Exception {
+        try {
+            future.get();
+            return null;
+        } catch (ExecutionException e) {
+            return ((DatahubClientException) e.getCause()).getErrorMessage();
+        }
+    }
+
+    @Test
+    public void testSendAsyncBufferFull() throws Exception {
+        mockSuccess(listShardExpectation(-1), LIST_SHARD_RESULT);
+        mockSuccess(getTopicExpectation(-1), GET_TOPIC_RESULT);
+        mockSuccess(shardExpectation("pub", -1), PUT_RECORDS_RESULT);
+
+        List<Future<WriteResult>> futures = fillBuffer(BufferFullPolicy.FAIL);
+        Assert.assertNull(getErrorMessage(futures.get(0)));
+        Assert.assertEquals("Buffer is full", getErrorMessage(futures.get(futures.size() - 1)));
+    }
+
+    @Test
+    public void testSendAsyncDropOldest() throws Exception {
+        mockSuccess(listShardExpectation(-1), LIST_SHARD_RESULT);
+        mockSuccess(getTopicExpectation(-1), GET_TOPIC_RESULT);
+        mockSuccess(shardExpectation("pub", -1), PUT_RECORDS_RESULT);
+
+        List<Future<WriteResult>> futures = fillBuffer(BufferFullPolicy.DROP_OLDEST);
+        Assert.assertEquals("Buffer is full, records dropped", getErrorMessage(futures.get(0)));
+        Assert.assertNull(getErrorMessage(futures.get(futures.size() - 1)));
+    }
+
+    @Test
+    public void testSendAsyncSticky() throws Exception {
+        mockSuccess(listShardExpectation(-1), LIST_SHARD_RESULT);
+        mockSuccess(getTopicExpectation(-1), GET_TOPIC_RESULT);
+        mockSuccess(shardExpectation("pub", -1), PUT_RECORDS_RESULT);
+
+        ProducerConfig config = getDefaultConfig();
+        config.setAsyncBatchCount(10);
+        // only full batches are sent
+        config.setAsyncLingerTimeMs(60000);
+        Producer producer = new Producer("test_project", "test_topic", config);
+
+        List<Future<WriteResult>> futures = new ArrayList<>();
+        for (RecordEntry record : genRecords(20)) {
+            futures.add(producer.sendAsync(record));
+        }
+        // records stay on one shard until its batch is full instead of spreading into partial batches
+        for (Future<WriteResult> future : futures) {
+            Assert.assertNotNull(future.get().getShardId());
+        }
+        Assert.assertEquals(futures.get(0).get().getShardId(), futures.get(9).get().getShardId());
+        Assert.assertEquals(futures.get(10).get().getShardId(), futures.get(19).get().getShardId());
+        mockServerClient.verify(shardRequest("pub"), VerificationTimes.exactly(2));
+        producer.close();
+    }
+
+    @Test
+    public void testFlushOnlyEarlierRecords() throws Exception {
+        mockSuccess(listShardExpectation(-1), LIST_SHARD_RESULT);
+        mockSuccess(getTopicExpectation(-1), GET_TOPIC_RESULT);
+        mockSuccess(shardExpectation("pub", -1), PUT_RECORDS_RESULT);
+
+        ProducerConfig config = getDefaultConfig();
+        config.setAsyncLingerTimeMs(60000);
+        Producer producer = new Producer("test_project", "test_topic", config);
+
+        List<RecordEntry> records = genRecords(6);
+        List<Future<WriteResult>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; ++i) {
+            futures.add(producer.sendAsync(records.get(i)));
+        }
+        producer.flush();
+        for (Future<WriteResult> future : futures) {
+            Assert.assertTrue(future.isDone());
+        }
+
+        // records after the flush wait for linger time again
+        Future<WriteResult> later = producer.sendAsync(records.get(5));
+        Thread.sleep(200);
+        Assert.assertFalse(later.isDone());
+        Assert.assertEquals(1, producer.getBufferedRecordCount());
+        mockServerClient.verify(shardRequest("pub"), VerificationTimes.exactly(1));
+        producer.close();
+    }
+
+    @Test
+    public void testSendAsyncRetry() throws Exception {
+        mockSuccess(listShardExpectation(-1), LIST_SHARD_RESULT);
+        mockSuccess(getTopicExpectation(-1), GET_TOPIC_RESULT);
+        mockFail(shardExpectation("pub", 2), 500, INTERNAL_SERVER_ERROR);
+        mockSuccess(shardExpectation("pub", -1), PUT_RECORDS_RESULT);
+
+        ProducerConfig config = getDefaultConfig();
+        config.setRetryBackoffMs(10);
+        config.setMaxRetryBackoffMs(100);
+        Producer producer = new Producer("test_project", "test_topic", config);
+
+        Future<WriteResult> future = producer.sendAsync(genRecords(1).get(0));
+        producer.flush();
+        Assert.assertNotNull(future.get().getShardId());
+        mockServerClient.verify(shardRequest("pub"), VerificationTimes.exactly(3));
+        producer.close();
+    }
+
+    @Test
+    public void testSendLeastLoaded() {
+        mockSuccess(listShardExpectation(-1), LIST_SHARD_RESULT);
+        mockSuccess(getTopicExpectation(-1), GET_TOPIC_RESULT);
+        mockSuccess(shardExpectation("pub", -1), PUT_RECORDS_RESULT);
+
+        final int rounds = 50;
+        ProducerConfig config = getDefaultConfig();
+        config.setShardPickStrategy(ShardPickStrategy.LEAST_LOADED);
+        final Producer producer = new Producer("test_project", "test_topic", config);
+        final AtomicInteger failed = new AtomicInteger(0);
+
+        runInThreads(new Runnable() {
+            @Override
+            public void run() {
+                List<RecordEntry> records = genRecords(10);
+                for (int i = 0; i < rounds; ++i) {
+                    try {
+                        producer.send(records, 1);
+                    } catch (DatahubClientException e) {
+                        failed.incrementAndGet();
+                    }
+                }
+            }
+        });
+
+        Assert.assertEquals(0, failed.get());
+        mockServerClient.verify(shardRequest("pub"), VerificationTimes.exactly(THREAD_COUNT * rounds));
+        producer.close();
+    }
+
+    @Test
+    public void testParallelSend() {
+        mockSuccess(listShardExpectation(-1), LIST_SHARD_RESULT);
+        mockSuccess(getTopicExpectation(-1), GET_TOPIC_RESULT);
+        mockSuccess(shardExpectation("pub", -1), PUT_RECORDS_RESULT);
+
+        ProducerConfig config = getDefaultConfig();
+        config.setParallelWrite(true);
+        config.setMaxRequestRecordCount(100);
+        Producer producer = new Producer("test_project", "test_topic", config);
+
+        producer.send(genRecords(1000), 1);
+
+        mockServerClient.verify(shardRequest("pub"), VerificationTimes.exactly(10));
+        for (int i = 0; i < 4; ++i) {
+            mockServerClient.verify(request().withMethod("POST").withPath(SHARDS_PATH + "/" + i)
+                            .withBody(json("{\"Action\":\"pub\"}", MatchType.ONLY_MATCHING_FIELDS)),
+                    VerificationTimes.atLeast(2));
+        }
+        producer.close();
+    }
+
+    @Test
+    public void testSendSplitBySize() {
+        mockSuccess(listShardExpectation(-1), LIST_SHARD_RESULT);
+        mockSuccess(getTopicExpectation(-1), GET_TOPIC_RESULT);
+        mockSuccess(shardExpectation("pub", -1), PUT_RECORDS_RESULT);
+
+        ProducerConfig config = getDefaultConfig();
+        config.setMaxRequestSize(10 * 1024);
+        Producer producer = new Producer("test_project", "test_topic", config);
+
+        List<RecordEntry> records = new ArrayList<>();
+        char[] chars = new char[1000];
+        Arrays.fill(chars, 'a');
+        for (RecordEntry record : genRecords(100)) {
+            ((TupleRecordData) record.getRecordData()).setField("f1", new String(chars));
+            records.add(record);
+        }
+        // about 100KB, at most 10 records per request
+        producer.send(records, 1);
+
+        mockServerClient.verify(shardRequest("pub"), VerificationTimes.atLeast(10));
+        producer.close();
+    }
+
+    @Test
+    public void testSendByPartitionKey() {
+        mockSuccess(listShardExpectation(-1), LIST_SHARD_RESULT);
+        mockSuccess(getTopicExpectation(-1), GET_TOPIC_RESULT);
+        mockSuccess(shardExpectation("pub", -1), PUT_RECORDS_RESULT);
+
+        ProducerConfig config = getDefaultConfig();
+        config.setPartitionKeyAttribute("key");
+        Producer producer = new Producer("test_project", "test_topic", config);
+
+        String[] keys = {"user_1", "user_2", "user_3"};
+        for (String key : keys) {
+            List<RecordEntry> records = genRecords(10);
+            for (RecordEntry record : records) {
+                record.addAttribute("key", key);
+            }
+            for (int i = 0; i < 5; ++i) {
+                producer.send(records, 1);
+            }
+        }
+
+        Map<String, Integer> expected = new HashMap<>();
+        for (String key : keys) {
+            String shardId = getOwnerShard(key);
+            expected.put(shardId, (expected.containsKey(shardId) ? expected.get(shardId) : 0) + 5);
+        }
+        for (Map.Entry<String, Integer> entry : expected.entrySet()) {
+            mockServerClient.verify(request().withMethod("POST").withPath(SHARDS_PATH + "/" + entry.getKey())
+                            .withBody(json("{\"Action\":\"pub\"}", MatchType.ONLY_MATCHING_FIELDS)),
+                    VerificationTimes.exactly(entry.getValue()));
+        }
+        producer.close();
+    }
+
+    @Test
+    public void testSendClosed() {
+        mockSuccess(listShardExpectation(-1), LIST_SHARD_RESULT);
+        mockSuccess(getTopicExpectation(-1), GET_TOPIC_RESULT);
+
+        Producer producer = new Producer("test_project", "test_topic", getDefaultConfig());
+        producer.close();
+        try {
+            producer.send(genRecords(1), 1);
+            Assert.fail("throw exception");
+        } catch (DatahubClientException e) {
+            Assert.assertEquals("This producer has already been closed", e.getErrorMessage());
+        }
+    }
+
+    @Test
+    public void testRecordPool() throws ExecutionException, InterruptedException {
+        mockSuccess(listShardExpectation(-1), LIST_SHARD_RESULT);
+        mockSuccess(getTopicExpectation(-1), GET_TOPIC_RESULT);
+        mockSuccess(shardExpectation("pub", -1), PUT_RECORDS_RESULT);
+
+        Producer producer = new Producer("test_project", "test_topic", getDefaultConfig());
+        RecordEntry record = producer.newRecord();
+        TupleRecordData data = (TupleRecordData) record.getRecordData();
+        data.setField("f1", "test");
+        data.setField("f2", 1L);
+        record.addAttribute("key", "value");
+        Future<WriteResult> future = producer.sendAsync(record);
+        producer.flush();
+        Assert.assertNotNull(future.get().getShardId());
+
+        // recycled once written
+        RecordEntry reused = producer.newRecord();
+        Assert.assertSame(record, reused);
+        Assert.assertNull(((TupleRecordData) reused.getRecordData()).getField("f1"));
+        Assert.assertNull(((TupleRecordData) reused.getRecordData()).getField("f2"));
+        Assert.assertTrue(reused.getAttributes() == null || reused.getAttributes().isEmpty());
+        Assert.assertNull(reused.getShardId());
+        Assert.assertNull(reused.getPartitionKey());
+        Assert.assertNull(reused.getHashKey());
+        Assert.assertNotSame(reused, producer.newRecord());
+
+        // data replaced by the caller is not handed out again
+        TupleRecordData replaced = (TupleRecordData) genRecords(1).get(0).getRecordData();
+        reused.setRecordData(replaced);
+        future = producer.sendAsync(reused);
+        producer.flush();
+        Assert.assertNotNull(future.get().getShardId());
+        Assert.assertSame(reused, producer.newRecord());
+        Assert.assertNotSame(replaced, reused.getRecordData());
+        Assert.assertNull(((TupleRecordData) reused.getRecordData()).getField("f1"));
+        producer.close();
+
+        ProducerConfig config = getDefaultConfig();
+        config.setRecordPoolSize(0);
+        producer = new Producer("test_project", "test_topic", config);
+        record = producer.newRecord();
+        ((TupleRecordData) record.getRecordData()).setField("f1", "test");
+        future = producer.sendAsync(record);
+        producer.flush();
+        Assert.assertNotNull(future.get().getShardId());
+        Assert.assertNotSame(record, producer.newRecord());
+        producer.close();
+    }
+
+    @Test
+    public void testRecordPoolBufferFull() throws Exception {
+        mockSuccess(listShardExpectation(-1), LIST_SHARD_RESULT);
+        mockSuccess(getTopicExpectation(-1), GET_TOPIC_RESULT);
+        mockSuccess(shardExpectation("pub", -1), PUT_RECORDS_RESULT);
+
+        ProducerConfig config = getDefaultConfig();
+        config.setAsyncBatchCount(10000);
+        config.setAsyncLingerTimeMs(60000);
+        config.setBufferSize(1024 * 1024);
+        config.setBufferFullPolicy(null);
+        Assert.assertEquals(BufferFullPolicy.BLOCK, config.getBufferFullPolicy());
+        config.setBufferFullPolicy(BufferFullPolicy.FAIL);
+        Producer producer = new Producer("test_project", "test_topic", config);
+        for (RecordEntry record : genRecords(50000)) {
+            producer.sendAsync(record);
+        }
+
+        RecordEntry record = producer.newRecord();
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 200 * 1024; ++i) {
+            value.append('a');
+        }
+        ((TupleRecordData) record.getRecordData()).setField("f1", value.toString());
+        Future<WriteResult> future = producer.sendAsync(record);
+        Assert.assertEquals("Buffer is full", getErrorMessage(future));
+        // rejected records go back to the pool as well
+        Assert.assertSame(record, producer.newRecord());
+        producer.close();
+    }
+
+    @Test
+    public void testWriteFutureFinishOnce() throws Exception {
+        final AtomicInteger callbacks = new AtomicInteger(0);
+        WriteFuture future = new WriteFuture(new WriteCallback() {
+            @Override
+            public void onCompletion(WriteResult result, DatahubClientException exception) {
+                callbacks.incrementAndGet();
+            }
+        });
+        future.complete(new WriteResult("0", 1));
+        // a late failure, e.g. close racing the send completion, is ignored
+        future.fail(new DatahubClientException("closed"));
+        Assert.assertEquals("0", future.get().getShardId());
+        Assert.assertEquals(1, callbacks.get());
+    }
+}